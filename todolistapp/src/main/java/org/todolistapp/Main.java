@@ -2,8 +2,12 @@ package org.todolistapp;
 
 import javafx.application.Application;
 import javafx.stage.Stage;
+import org.todolistapp.replication.ReplicationLeader;
 import org.todolistapp.service.TaskHandler;
+import org.todolistapp.storage.SyncMode;
 import org.todolistapp.ui.ToDoAppUI;
+
+import java.io.IOException;
 /**
  * Main.java
 
@@ -24,17 +28,47 @@ import org.todolistapp.ui.ToDoAppUI;
 
 public class Main extends Application {
 
+    // Saves made within this window are group-committed into a single synced write
+    private static final long SYNC_INTERVAL_MILLIS = 250;
+
+    // System property with the port to ship changes to standby followers on (see ReplicationMain)
+    private static final String REPLICATION_PORT_PROPERTY = "todolist.replication.port";
+
+    private TaskHandler taskHandler;
+    private ReplicationLeader replicationLeader;
+
     @Override
     public void start(Stage primaryStage) {
         // Initialize TaskHandler with path to CSV file
         String csvFilePath = "src\\main\\resources\\tasks.csv";
-        TaskHandler taskHandler = new TaskHandler(csvFilePath);
+        taskHandler = new TaskHandler(csvFilePath, SyncMode.INTERVAL, SYNC_INTERVAL_MILLIS);
+        // Pick up edits made to the CSV file by other programs
+        taskHandler.startWatching();
+        startReplication();
 
         // Start the UI
         ToDoAppUI appUI = new ToDoAppUI(taskHandler);
         appUI.start(primaryStage);
     }
 
+    // Starts shipping changes to standby followers if a replication port is configured
+    private void startReplication() {
+        Integer port = Integer.getInteger(REPLICATION_PORT_PROPERTY);
+        if (port == null) return;
+        try {
+            replicationLeader = new ReplicationLeader(taskHandler, port);
+        } catch (IOException e) {
+            System.err.println("Error starting replication: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (replicationLeader != null) replicationLeader.close();
+        // Flush any batched saves before the JVM exits
+        if (taskHandler != null) taskHandler.close();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -0,0 +1,70 @@
+package org.todolistapp;
+
+import org.todolistapp.replication.ReplicationFollower;
+import org.todolistapp.replication.ReplicationLeader;
+import org.todolistapp.service.TaskHandler;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+/**
+ * ReplicationMain.java
+
+ * Command-line entry point for running a task store without the UI, either
+ * as a replication leader or as a warm standby following one.
+
+ * Usage:
+ *  - ReplicationMain leader <task file> <port>
+ *  - ReplicationMain follower <task file> <leader host> <leader port>
+
+ * Responsibilities:
+ *  - Open the task file and start the leader or follower on it.
+ *  - Keep running until the process is stopped, then close everything so
+ *    pending saves reach the disk.
+
+ * Notes:
+ *  - A headless leader watches its task file, so edits made by other
+ *    programs (for example TaskCli imports) are shipped to followers.
+ *  - The UI can act as the leader too: start Main with
+ *    -Dtodolist.replication.port=<port>.
+ *  - The follower keeps its position in "<task file>.replica".
+ */
+
+public class ReplicationMain {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean leader = args.length == 3 && args[0].equals("leader");
+        boolean follower = args.length == 4 && args[0].equals("follower");
+        if (!leader && !follower) {
+            System.err.println("Usage: ReplicationMain leader <task file> <port>");
+            System.err.println("       ReplicationMain follower <task file> <leader host> <leader port>");
+            System.exit(1);
+        }
+
+        TaskHandler taskHandler = new TaskHandler(args[1]);
+        AutoCloseable replication;
+        if (leader) {
+            taskHandler.startWatching();
+            ReplicationLeader replicationLeader = new ReplicationLeader(taskHandler, Integer.parseInt(args[2]));
+            System.out.println("Replicating " + args[1] + " on port " + replicationLeader.getPort());
+            replication = replicationLeader;
+        } else {
+            replication = new ReplicationFollower(taskHandler, args[2], Integer.parseInt(args[3]),
+                    Paths.get(args[1] + ".replica"));
+            System.out.println("Following " + args[2] + ":" + args[3] + " into " + args[1]);
+        }
+
+        // Runs until the process is stopped
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                replication.close();
+            } catch (Exception e) {
+                System.err.println("Error stopping replication: " + e.getMessage());
+            }
+            taskHandler.close();
+            stopped.countDown();
+        }));
+        stopped.await();
+    }
+}
@@ -0,0 +1,204 @@
+package org.todolistapp;
+
+import org.todolistapp.models.Task;
+import org.todolistapp.storage.CsvHandler;
+import org.todolistapp.storage.SyncMode;
+import org.todolistapp.storage.TaskJsonLines;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+/**
+ * TaskCli.java
+
+ * Command-line entry point for moving large task lists in and out of the
+ * application without starting the UI.
+
+ * Usage:
+ *  - TaskCli import <task file> <input file>   appends the tasks of the input file
+ *  - TaskCli export <task file> <output file>  writes every task to the output file
+
+ * Responsibilities:
+ *  - Stream CSV (the task file format) and JSON Lines (".jsonl") files in
+ *    both directions; a ".gz" suffix on either adds gzip compression.
+ *  - Give imported tasks new IDs after the highest existing one, so they
+ *    never collide with tasks already in the task file.
+ *  - Skip malformed rows, reporting each one by line number.
+ *  - Print how many rows were processed and how fast.
+ *  - If the task file cannot be written, report how many tasks were
+ *    written before the failure and exit with a nonzero code.
+
+ * Notes:
+ *  - Memory use does not depend on the size of the files: input rows are
+ *    parsed one at a time and appended in fixed-size batches, and exports
+ *    stream the task file through CsvHandler.forEachTask.
+ *  - The highest existing ID is found by streaming the task file once
+ *    before the import starts.
+ *  - IDs in the input are ignored, only category, description, due date
+ *    and priority are imported.
+ */
+
+public class TaskCli {
+
+    // Number of imported tasks appended to the task file with one write
+    private static final int BATCH_SIZE = 10_000;
+    // Malformed rows reported individually; the rest are only counted
+    private static final int MAX_REPORTED_ERRORS = 20;
+    private static final String JSON_LINES_EXTENSION = ".jsonl";
+    private static final String GZIP_EXTENSION = ".gz";
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    // Runs one command. Returns the process exit code
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length != 3 || !(args[0].equals("import") || args[0].equals("export"))) {
+            err.println("Usage: TaskCli import <task file> <input file>");
+            err.println("       TaskCli export <task file> <output file>");
+            err.println("Files ending in " + JSON_LINES_EXTENSION + " are JSON Lines, anything else is CSV."
+                    + " Add " + GZIP_EXTENSION + " for gzip compression.");
+            return 1;
+        }
+        try (CsvHandler storage = new CsvHandler(args[1], SyncMode.EVERY_WRITE, 0)) {
+            return args[0].equals("import")
+                    ? importTasks(storage, Paths.get(args[2]), out, err)
+                    : exportTasks(storage, Paths.get(args[2]), out);
+        } catch (IOException | UncheckedIOException e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    // Appends every valid row of the input file to the task file with fresh IDs
+    private static int importTasks(CsvHandler storage, Path input, PrintStream out, PrintStream err) throws IOException {
+        if (!Files.exists(input)) {
+            err.println("Error: input file not found: " + input);
+            return 1;
+        }
+        long startNanos = System.nanoTime();
+        long[] maxId = {0};
+        storage.forEachTask(task -> maxId[0] = Math.max(maxId[0], task.getId()));
+        long nextId = maxId[0] + 1;
+
+        boolean jsonLines = isJsonLines(input);
+        List<Task> batch = new ArrayList<>(BATCH_SIZE);
+        long lineNumber = 0;
+        long imported = 0;
+        long rejected = 0;
+        // Written in batches, so after a failure the tasks of the earlier batches are in the task file
+        try (BufferedReader reader = openReader(input)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                Task parsed;
+                try {
+                    parsed = parseRow(line, jsonLines);
+                } catch (RuntimeException e) {
+                    if (rejected++ < MAX_REPORTED_ERRORS) {
+                        err.println("Line " + lineNumber + " skipped: " + e.getMessage());
+                    }
+                    continue;
+                }
+                batch.add(new Task(nextId++, parsed.getCategory(), parsed.getDescription(),
+                        parsed.getDueAt(), parsed.getPriority()));
+                if (batch.size() == BATCH_SIZE) {
+                    storage.appendTasks(batch);
+                    imported += batch.size();
+                    batch.clear();
+                }
+            }
+            storage.appendTasks(batch);
+            imported += batch.size();
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            err.println("Import stopped after " + imported + " tasks were written"
+                    + (imported > 0 ? " (IDs " + (maxId[0] + 1) + " to " + (maxId[0] + imported) + ")" : ""));
+            return 1;
+        }
+
+        if (rejected > MAX_REPORTED_ERRORS) {
+            err.println((rejected - MAX_REPORTED_ERRORS) + " more malformed lines skipped");
+        }
+        out.println("Imported " + imported + " tasks (IDs " + (maxId[0] + 1) + " to " + (nextId - 1) + "), skipped "
+                + rejected + " malformed lines");
+        printThroughput(out, lineNumber, Files.size(input), startNanos);
+        return 0;
+    }
+
+    // Writes every task of the task file to the output file
+    private static int exportTasks(CsvHandler storage, Path output, PrintStream out) throws IOException {
+        long startNanos = System.nanoTime();
+        boolean jsonLines = isJsonLines(output);
+        long exported;
+        try (BufferedWriter writer = openWriter(output)) {
+            exported = storage.forEachTask(task -> {
+                try {
+                    writer.write(jsonLines ? TaskJsonLines.toJson(task) : task.toString());
+                    writer.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        out.println("Exported " + exported + " tasks to " + output);
+        printThroughput(out, exported, Files.size(output), startNanos);
+        return 0;
+    }
+
+    // Parses one input row. Throws an unchecked exception describing what is wrong with it
+    private static Task parseRow(String line, boolean jsonLines) {
+        Task task;
+        if (jsonLines) {
+            task = TaskJsonLines.fromJson(line);
+        } else {
+            if (line.split(",", 3).length < 3) {
+                throw new IllegalArgumentException("Expected id,category,description");
+            }
+            try {
+                task = Task.fromCSV(line);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid value: " + e.getMessage(), e);
+            }
+        }
+        // Each task is one line of the task file
+        String description = task.getDescription();
+        if (description.indexOf('\n') >= 0 || description.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Description contains a line break");
+        }
+        return task;
+    }
+
+    private static void printThroughput(PrintStream out, long rows, long bytes, long startNanos) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        out.printf("%d rows in %.2f s: %.0f rows/s, %.1f MB/s%n",
+                rows, seconds, rows / seconds, bytes / seconds / (1024 * 1024));
+    }
+
+    private static boolean isJsonLines(Path path) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(GZIP_EXTENSION)) name = name.substring(0, name.length() - GZIP_EXTENSION.length());
+        return name.endsWith(JSON_LINES_EXTENSION);
+    }
+
+    // Opens a reader on an input file, decompressing it if its name ends in .gz
+    private static BufferedReader openReader(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        if (path.toString().endsWith(GZIP_EXTENSION)) in = new GZIPInputStream(in, 64 * 1024);
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    // Opens a writer on an output file, compressing it if its name ends in .gz
+    private static BufferedWriter openWriter(Path path) throws IOException {
+        OutputStream out = Files.newOutputStream(path);
+        if (path.toString().endsWith(GZIP_EXTENSION)) out = new GZIPOutputStream(out, 64 * 1024);
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+}
@@ -8,12 +8,20 @@ package org.todolistapp.models;
  * Each task has:
  *   - a unique, immutable ID (long) for identification and ordering,
  *   - a category (String) to classify the task,
- *   - a description (String) which describes the task itself.
+ *   - a description (String) which describes the task itself,
+ *   - an optional due date (epoch milliseconds),
+ *   - a priority (TaskPriority).
 
  * The class provides:
  *   - Getters and setters for category and description,
  *   - Conversion to and from CSV format for persistent storage,
  *   - A clean, simple structure suitable for a desktop or command-line To-Do application.
+
+ * CSV format:
+ *   id,CATEGORY[;key=value...],description
+ *   Optional attributes are attached to the category field, since it is the only
+ *   field that can never contain a comma or semicolon. A task without optional
+ *   attributes is stored exactly as before, and unknown keys are ignored.
  */
 
 public class Task {
@@ -21,15 +29,35 @@ public class Task {
         ID = unique name for this task
         category = category that this task falls under
         description = what the task actually is
+        dueAt = when the task is due (epoch milliseconds), or NO_DUE_DATE
+        priority = how important the task is
      */
+    public static final long NO_DUE_DATE = 0;
+    // Separators and keys of the optional attributes in the category field
+    private static final String ATTRIBUTE_SEPARATOR = ";";
+    private static final String DUE_KEY = "due";
+    private static final String PRIORITY_KEY = "priority";
+
     private final long id;
     private TaskCategory category;
     private String description;
+    private long dueAt;
+    private TaskPriority priority;
 
     public Task(long id, TaskCategory category, String description) {
+        this(id, category, description, NO_DUE_DATE);
+    }
+
+    public Task(long id, TaskCategory category, String description, long dueAt) {
+        this(id, category, description, dueAt, TaskPriority.NONE);
+    }
+
+    public Task(long id, TaskCategory category, String description, long dueAt, TaskPriority priority) {
         this.id = id;
         this.category = (category != null) ? category : TaskCategory.UNCATEGORIZED;
         this.description = description;
+        this.dueAt = dueAt;
+        this.priority = (priority != null) ? priority : TaskPriority.NONE;
     }
 
     // GET METHODS
@@ -39,17 +67,34 @@ public class Task {
     public TaskCategory getCategory() { return category; }
     // Description get method
     public String getDescription() { return description; }
+    // Due date get method (epoch milliseconds, NO_DUE_DATE if none)
+    public long getDueAt() { return dueAt; }
+    // Returns true if this task has a due date
+    public boolean hasDueDate() { return dueAt != NO_DUE_DATE; }
+    // Returns true if this task has a due date at or before the given time
+    public boolean isOverdue(long now) { return hasDueDate() && dueAt <= now; }
+    // Priority get method
+    public TaskPriority getPriority() { return priority; }
 
     // SET METHODS
     // Sets this task to a specific category
     public void setCategory(TaskCategory category) { this.category = (category != null) ? category : TaskCategory.UNCATEGORIZED; }
     // Sets this task's description
     public void setDescription(String description) { this.description = description; }
+    // Sets this task's due date. NO_DUE_DATE removes it
+    public void setDueAt(long dueAt) { this.dueAt = dueAt; }
+    // Sets this task's priority. Defaults to NONE if null
+    public void setPriority(TaskPriority priority) { this.priority = (priority != null) ? priority : TaskPriority.NONE; }
 
     // Convert task to CSV string for reading/writing to storage
     @Override
     public String toString() {
-        return id + "," + category.name() + "," + description;
+        StringBuilder categoryField = new StringBuilder(category.name());
+        if (hasDueDate()) categoryField.append(ATTRIBUTE_SEPARATOR).append(DUE_KEY).append('=').append(dueAt);
+        if (priority != TaskPriority.NONE) {
+            categoryField.append(ATTRIBUTE_SEPARATOR).append(PRIORITY_KEY).append('=').append(priority.name());
+        }
+        return id + "," + categoryField + "," + description;
     }
 
     // Factory method: create a Task object from a CSV line
@@ -57,9 +102,18 @@ public class Task {
         String[] fields = csv.split(",",3);
 
         long id = Long.parseLong(fields[0]);
-        TaskCategory category = TaskCategory.valueOf(fields[1]);
+        String[] categoryField = fields[1].split(ATTRIBUTE_SEPARATOR);
+        TaskCategory category = TaskCategory.valueOf(categoryField[0]);
         String description = fields[2];
 
-        return new Task(id, category, description);
+        long dueAt = NO_DUE_DATE;
+        TaskPriority priority = TaskPriority.NONE;
+        for (int i = 1; i < categoryField.length; i++) {
+            String[] attribute = categoryField[i].split("=", 2);
+            if (attribute.length != 2) continue;
+            if (attribute[0].equals(DUE_KEY)) dueAt = Long.parseLong(attribute[1]);
+            else if (attribute[0].equals(PRIORITY_KEY)) priority = TaskPriority.valueOf(attribute[1]);
+        }
+        return new Task(id, category, description, dueAt, priority);
     }
 }
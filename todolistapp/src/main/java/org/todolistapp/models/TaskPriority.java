@@ -0,0 +1,17 @@
+package org.todolistapp.models;
+
+/**
+ * TaskPriority.java
+
+ * Defines the priority levels a task can have, from lowest to highest.
+ * The declaration order is used when sorting tasks by priority.
+
+ * A task without a specific priority will default to NONE
+ */
+
+public enum TaskPriority {
+    NONE,
+    LOW,
+    MEDIUM,
+    HIGH;
+}
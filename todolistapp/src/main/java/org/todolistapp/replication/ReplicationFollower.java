@@ -0,0 +1,200 @@
+package org.todolistapp.replication;
+
+import org.todolistapp.models.Task;
+import org.todolistapp.service.TaskChange;
+import org.todolistapp.service.TaskHandler;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * ReplicationFollower.java
+
+ * Keeps a standby TaskHandler up to date with the change stream of a ReplicationLeader.
+
+ * Responsibilities:
+ *  - Connect to the leader and say which stream and sequence number it has
+ *    already applied.
+ *  - Apply snapshots and batches of changes to the local TaskHandler (each
+ *    batch as one save) and acknowledge them.
+ *  - Reconnect after the leader goes away.
+
+ * Notes:
+ *  - The stream ID and last applied sequence number are written to a small
+ *    state file after each batch, so a restarted follower resumes where it
+ *    stopped instead of downloading a new snapshot. The file is written after
+ *    the tasks are saved; applying a change twice is harmless because every
+ *    change carries the full task. Like the task file, it is written to a
+ *    temporary file, synced and renamed into place, so a crash never leaves
+ *    a truncated position behind.
+ */
+
+public class ReplicationFollower implements AutoCloseable {
+    // Wait before reconnecting to the leader
+    private static final long RETRY_MILLIS = 500;
+    // Suffix of the temporary file the state is written to before the rename
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final TaskHandler taskHandler;
+    private final String host;
+    private final int port;
+    private final Path stateFile;
+    private final Thread thread;
+    private volatile long streamId = ReplicationProtocol.NO_STREAM;
+    private volatile long lastAppliedSequence;
+    private volatile boolean closed;
+    private volatile Socket socket;
+
+    // Starts following the leader. stateFile may be null to always start from a snapshot
+    public ReplicationFollower(TaskHandler taskHandler, String host, int port, Path stateFile) {
+        this.taskHandler = taskHandler;
+        this.host = host;
+        this.port = port;
+        this.stateFile = stateFile;
+        loadState();
+
+        thread = new Thread(this::run, "replication-follower");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Returns the sequence number of the last change applied from the leader
+    public long getLastAppliedSequence() {
+        return lastAppliedSequence;
+    }
+
+    // Stops following. The tasks applied so far stay in the local store
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    // Connects to the leader, applies what it sends and reconnects when the connection drops
+    private void run() {
+        while (!closed) {
+            try (Socket connection = new Socket()) {
+                socket = connection;
+                connection.connect(new InetSocketAddress(host, port), (int) ReplicationLeader.HEARTBEAT_MILLIS);
+                connection.setTcpNoDelay(true);
+                // No message at all for a few heartbeats means the leader is gone
+                connection.setSoTimeout((int) (ReplicationLeader.HEARTBEAT_MILLIS * 5));
+                follow(connection);
+            } catch (EOFException | SocketException e) {
+                // Leader disconnected or follower closed
+            } catch (IOException e) {
+                if (!closed) System.err.println("Replication from leader stopped: " + e.getMessage());
+            }
+            try {
+                if (!closed) Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void follow(Socket connection) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+        out.writeInt(ReplicationProtocol.MAGIC);
+        out.writeLong(streamId);
+        out.writeLong(lastAppliedSequence);
+        out.flush();
+
+        while (!closed) {
+            byte type = in.readByte();
+            if (type == ReplicationProtocol.SNAPSHOT) {
+                long snapshotStream = in.readLong();
+                long sequence = in.readLong();
+                int count = in.readInt();
+                List<Task> tasks = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    tasks.add(Task.fromCSV(ReplicationProtocol.readString(in)));
+                }
+                taskHandler.applyReplicatedSnapshot(tasks);
+                applied(snapshotStream, sequence);
+            } else if (type == ReplicationProtocol.BATCH) {
+                int count = in.readInt();
+                List<TaskChange> changes = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    changes.add(ReplicationProtocol.readChange(in));
+                }
+                if (!changes.isEmpty()) {
+                    taskHandler.applyReplicatedChanges(changes);
+                    applied(streamId, changes.get(changes.size() - 1).sequence());
+                }
+            } else {
+                throw new IOException("Unknown replication message " + type);
+            }
+            out.writeLong(lastAppliedSequence);
+            out.flush();
+        }
+    }
+
+    // Remembers the position reached in the leader's stream
+    private void applied(long stream, long sequence) {
+        streamId = stream;
+        lastAppliedSequence = sequence;
+        if (stateFile == null) return;
+        try {
+            writeState(stream + "," + sequence);
+        } catch (IOException e) {
+            System.err.println("Error saving replication state: " + e.getMessage());
+        }
+    }
+
+    // Writes the state to a temporary file, syncs it and renames it over the state file, so a crash leaves
+    // either the old position or the new one
+    private void writeState(String state) throws IOException {
+        Path temp = stateFile.resolveSibling(stateFile.getFileName() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(state.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, stateFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // Syncs the directory so the rename survives a crash. Not supported on every platform
+        Path directory = stateFile.toAbsolutePath().getParent();
+        if (directory == null) return;
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened for syncing on some platforms (e.g. Windows)
+        }
+    }
+
+    // Reads the position saved by a previous run, if any
+    private void loadState() {
+        if (stateFile == null || !Files.exists(stateFile)) return;
+        try {
+            String[] fields = Files.readString(stateFile, StandardCharsets.UTF_8).trim().split(",");
+            streamId = Long.parseLong(fields[0]);
+            lastAppliedSequence = Long.parseLong(fields[1]);
+        } catch (IOException | RuntimeException e) {
+            // Without a valid position the leader simply sends a snapshot
+            System.err.println("Ignoring replication state: " + e.getMessage());
+            streamId = ReplicationProtocol.NO_STREAM;
+            lastAppliedSequence = 0;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.todolistapp.replication;
+
+import org.todolistapp.models.Task;
+import org.todolistapp.service.TaskChange;
+import org.todolistapp.service.TaskHandler;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * ReplicationLeader.java
+
+ * Ships the change stream of a TaskHandler to standby followers over TCP.
+
+ * Responsibilities:
+ *  - Accept followers on a local port, one thread per follower.
+ *  - Send a snapshot to followers that are new, come from an older stream
+ *    (the leader restarted) or fell further behind than the change log keeps.
+ *  - Then send the changes in order, in acknowledged batches.
+
+ * Notes:
+ *  - The leader only reads from TaskHandler (awaitChanges / getSnapshot), so
+ *    a slow or dead follower never delays the application itself.
+ *  - Binds to the loopback address by default; the stream is not encrypted.
+ */
+
+public class ReplicationLeader implements AutoCloseable {
+    // Largest number of changes sent in one batch
+    public static final int DEFAULT_MAX_BATCH = 1000;
+    // A heartbeat is sent when no change arrived for this long
+    static final long HEARTBEAT_MILLIS = 1000;
+
+    private final TaskHandler taskHandler;
+    private final ServerSocket serverSocket;
+    private final int maxBatch;
+    private final Set<Socket> followers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong snapshotsSent = new AtomicLong();
+    private final AtomicLong lastAckedSequence = new AtomicLong();
+    private volatile boolean closed;
+
+    // Starts accepting followers on the given loopback port (0 picks a free one)
+    public ReplicationLeader(TaskHandler taskHandler, int port) throws IOException {
+        this(taskHandler, new ServerSocket(port, 50, InetAddress.getLoopbackAddress()), DEFAULT_MAX_BATCH);
+    }
+
+    // Starts accepting followers on an already bound server socket
+    public ReplicationLeader(TaskHandler taskHandler, ServerSocket serverSocket, int maxBatch) {
+        this.taskHandler = taskHandler;
+        this.serverSocket = serverSocket;
+        this.maxBatch = Math.max(1, maxBatch);
+
+        Thread acceptor = new Thread(this::acceptLoop, "replication-leader");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    // Returns the port followers connect to
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Returns the number of snapshots followers received and acknowledged so far
+    public long getSnapshotsSent() {
+        return snapshotsSent.get();
+    }
+
+    // Returns the highest sequence number acknowledged by any follower
+    public long getLastAckedSequence() {
+        return lastAckedSequence.get();
+    }
+
+    // Stops accepting followers and disconnects the connected ones
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing replication socket: " + e.getMessage());
+        }
+        for (Socket follower : followers) closeQuietly(follower);
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                followers.add(socket);
+                Thread thread = new Thread(() -> serve(socket), "replication-follower-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!closed) System.err.println("Error accepting follower: " + e.getMessage());
+            }
+        }
+    }
+
+    // Serves one follower until it disconnects
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            // A follower that stops acknowledging is given up after a few heartbeats
+            socket.setSoTimeout((int) (HEARTBEAT_MILLIS * 5));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            if (in.readInt() != ReplicationProtocol.MAGIC) throw new IOException("Not a replication follower");
+            long streamId = in.readLong();
+            long sequence = in.readLong();
+            // Sequence numbers of another stream mean nothing here
+            boolean needsSnapshot = streamId != taskHandler.getChangeStreamId();
+
+            while (!closed) {
+                List<TaskChange> batch = needsSnapshot ? null
+                        : taskHandler.awaitChanges(sequence, maxBatch, HEARTBEAT_MILLIS);
+                boolean snapshot = batch == null;
+                if (snapshot) {
+                    sequence = sendSnapshot(out);
+                } else {
+                    sendBatch(out, batch);
+                    if (!batch.isEmpty()) sequence = batch.get(batch.size() - 1).sequence();
+                }
+                needsSnapshot = false;
+
+                long acked = in.readLong();
+                if (acked != sequence) throw new IOException("Follower acknowledged " + acked + ", expected " + sequence);
+                // Counted once acknowledged, since a write to a follower that just went away can still succeed
+                if (snapshot) snapshotsSent.incrementAndGet();
+                lastAckedSequence.accumulateAndGet(acked, Math::max);
+            }
+        } catch (EOFException | SocketException e) {
+            // Follower disconnected or leader closed
+        } catch (IOException e) {
+            if (!closed) System.err.println("Replication to follower stopped: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followers.remove(socket);
+        }
+    }
+
+    // Sends all tasks and returns the sequence number they correspond to
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        TaskHandler.Snapshot snapshot = taskHandler.getSnapshot();
+        out.writeByte(ReplicationProtocol.SNAPSHOT);
+        out.writeLong(snapshot.streamId());
+        out.writeLong(snapshot.sequence());
+        out.writeInt(snapshot.tasks().size());
+        for (Task task : snapshot.tasks()) {
+            ReplicationProtocol.writeString(out, task.toString());
+        }
+        out.flush();
+        return snapshot.sequence();
+    }
+
+    private static void sendBatch(DataOutputStream out, List<TaskChange> batch) throws IOException {
+        out.writeByte(ReplicationProtocol.BATCH);
+        out.writeInt(batch.size());
+        for (TaskChange change : batch) {
+            ReplicationProtocol.writeChange(out, change);
+        }
+        out.flush();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.todolistapp.replication;
+
+import org.todolistapp.service.TaskChange;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+/**
+ * ReplicationProtocol.java
+
+ * Wire format shared by ReplicationLeader and ReplicationFollower.
+
+ * Messages (all numbers big-endian, as written by DataOutputStream):
+ *  - hello    (follower -> leader): magic, stream ID, last applied sequence
+ *  - snapshot (leader -> follower): 'S', stream ID, sequence, task count, tasks
+ *  - batch    (leader -> follower): 'B', change count, changes
+ *  - ack      (follower -> leader): sequence of the last change applied
+
+ * Notes:
+ *  - Every snapshot and batch is acknowledged before the next one is sent.
+ *    Batches grow with the backlog, so a lagging follower catches up in a
+ *    few large round trips instead of many small ones.
+ *  - An empty batch is a heartbeat: it lets both sides notice a dead peer.
+ *  - Strings are length-prefixed UTF-8, so descriptions are not limited to
+ *    the 64 KB of writeUTF.
+ */
+
+final class ReplicationProtocol {
+    static final int MAGIC = 0x54444C52; // "TDLR"
+    static final byte SNAPSHOT = 'S';
+    static final byte BATCH = 'B';
+    // Sent when the follower has nothing applied yet, so the leader starts with a snapshot
+    static final long NO_STREAM = 0;
+
+    private ReplicationProtocol() { }
+
+    static void writeChange(DataOutputStream out, TaskChange change) throws IOException {
+        out.writeLong(change.sequence());
+        out.writeLong(change.taskId());
+        out.writeBoolean(change.isRemoval());
+        if (!change.isRemoval()) writeString(out, change.task());
+    }
+
+    static TaskChange readChange(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        long taskId = in.readLong();
+        boolean removal = in.readBoolean();
+        return new TaskChange(sequence, taskId, removal ? null : readString(in));
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new IOException("Invalid string length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,24 @@
+package org.todolistapp.service;
+
+/**
+ * OverflowPolicy.java
+
+ * Defines what a TaskChangePublisher does when a subscriber's buffer is full,
+ * i.e. when changes arrive faster than the subscriber requests them.
+ * The code that changes tasks is never held up, whichever policy is used.
+
+ * DROP     - new changes are discarded until the subscriber catches up
+ * COALESCE - a pending change is replaced by a newer change of the same task,
+ *            so the buffer holds at most one change per task; changes of
+ *            other tasks are discarded while it is full
+ * BLOCK    - nothing is discarded: the subscriber's delivery thread stops
+ *            reading the change log until there is room again. A subscriber
+ *            that falls further behind than the change log keeps receives
+ *            onError instead
+ */
+
+public enum OverflowPolicy {
+    DROP,
+    COALESCE,
+    BLOCK;
+}
@@ -0,0 +1,222 @@
+package org.todolistapp.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+/**
+ * ReminderScheduler.java
+
+ * Fires a callback when a task's due date is reached, using a hierarchical timing wheel.
+
+ * How it works:
+ *  - Level 0 is a ring of buckets, each covering one tick of time. Each
+ *    higher level has as many buckets, each covering one full turn of the
+ *    level below (with 512 one-second ticks: 8.5 minutes, 3 days, 4 years).
+ *  - A reminder goes into the lowest level whose current turn contains its
+ *    deadline, in the bucket its deadline falls in.
+ *  - One worker thread wakes up once per tick. Whenever a lower level
+ *    completes a turn, the next bucket of the level above is emptied and its
+ *    reminders are placed again, one level down (cascading). Then every
+ *    reminder in the current level-0 bucket fires.
+
+ * Notes:
+ *  - Scheduling and cancelling are O(1): buckets are doubly linked lists and
+ *    each task's entry is found through a map by task ID.
+ *  - A reminder is only touched when it is scheduled, once per level it
+ *    cascades through and when it fires, so the work per tick does not grow
+ *    with the number of pending reminders. Deadlines beyond the top level's
+ *    horizon wait in an overflow bucket that is only revisited once per turn
+ *    of the top level.
+ *  - Reminders fire up to one tick late. The callback runs on the worker thread.
+ */
+
+public class ReminderScheduler implements AutoCloseable {
+    public static final long DEFAULT_TICK_MILLIS = 1000;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+    // Number of wheel levels, fewer if the tick counts they span would not fit in a long
+    private static final int MAX_LEVELS = 4;
+
+    // A pending reminder, linked into the bucket it waits in
+    private static final class Reminder {
+        final long taskId;
+        // Tick at the end of which the reminder fires
+        final long deadlineTick;
+        Bucket bucket;
+        Reminder prev;
+        Reminder next;
+
+        Reminder(long taskId, long deadlineTick) {
+            this.taskId = taskId;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    // Doubly linked list of reminders, so one can be unlinked without searching
+    private static final class Bucket {
+        Reminder head;
+        Reminder tail;
+
+        void add(Reminder reminder) {
+            reminder.bucket = this;
+            if (head == null) {
+                head = tail = reminder;
+            } else {
+                tail.next = reminder;
+                reminder.prev = tail;
+                tail = reminder;
+            }
+        }
+
+        void remove(Reminder reminder) {
+            if (reminder.prev != null) reminder.prev.next = reminder.next;
+            else head = reminder.next;
+            if (reminder.next != null) reminder.next.prev = reminder.prev;
+            else tail = reminder.prev;
+            reminder.prev = reminder.next = null;
+            reminder.bucket = null;
+        }
+    }
+
+    private final long tickMillis;
+    // Buckets by level and slot
+    private final Bucket[][] wheel;
+    // Reminders further away than the top level reaches
+    private final Bucket overflow = new Bucket();
+    // log2 of the wheel size: the bits of a tick number that select the slot on each level
+    private final int bits;
+    private final int mask;
+    private final long startTime;
+    private final LongConsumer onDue;
+    private final Map<Long, Reminder> remindersByTask = new HashMap<>();
+    private final Thread worker;
+    // Number of ticks processed so far (guarded by this)
+    private long tick;
+
+    // Creates a scheduler with one-second ticks
+    public ReminderScheduler(LongConsumer onDue) {
+        this(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE, onDue);
+    }
+
+    // Creates a scheduler. The wheel size is rounded up to a power of two. onDue receives the task ID
+    public ReminderScheduler(long tickMillis, int wheelSize, LongConsumer onDue) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("Tick duration must be positive");
+        this.tickMillis = tickMillis;
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.bits = Integer.numberOfTrailingZeros(size);
+        this.mask = size - 1;
+        int levels = Math.max(1, Math.min(MAX_LEVELS, 62 / bits));
+        this.wheel = new Bucket[levels][size];
+        for (Bucket[] level : wheel) {
+            for (int i = 0; i < size; i++) level[i] = new Bucket();
+        }
+        this.onDue = onDue;
+        this.startTime = System.currentTimeMillis();
+
+        this.worker = new Thread(this::run, "reminder-scheduler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Schedules (or reschedules) the reminder for a task at the given epoch milliseconds
+    public synchronized void schedule(long taskId, long deadline) {
+        cancel(taskId);
+        // A deadline that already passed goes into the current bucket and fires at the end of this tick
+        long deadlineTick = Math.max(tick, Math.max(0, deadline - startTime) / tickMillis);
+        Reminder reminder = new Reminder(taskId, deadlineTick);
+        place(reminder);
+        remindersByTask.put(taskId, reminder);
+    }
+
+    // Puts a reminder into the lowest level whose current turn contains its deadline. Must hold the lock
+    private void place(Reminder reminder) {
+        for (int level = 0; level < wheel.length; level++) {
+            int shift = bits * (level + 1);
+            // Same turn of the level above: the deadline's slot on this level comes round before that turn ends
+            if ((reminder.deadlineTick >>> shift) == (tick >>> shift)) {
+                wheel[level][(int) ((reminder.deadlineTick >>> (bits * level)) & mask)].add(reminder);
+                return;
+            }
+        }
+        overflow.add(reminder);
+    }
+
+    // Cancels the reminder for a task. Returns true if one was pending
+    public synchronized boolean cancel(long taskId) {
+        Reminder reminder = remindersByTask.remove(taskId);
+        if (reminder == null) return false;
+        reminder.bucket.remove(reminder);
+        return true;
+    }
+
+    // Returns the number of pending reminders
+    public synchronized int size() {
+        return remindersByTask.size();
+    }
+
+    // Stops the worker thread. Pending reminders are dropped
+    @Override
+    public void close() {
+        worker.interrupt();
+    }
+
+    // Worker loop: wait for the end of the current tick, then expire its bucket
+    private void run() {
+        try {
+            while (true) {
+                long tickEnd;
+                synchronized (this) {
+                    tickEnd = startTime + (tick + 1) * tickMillis;
+                }
+                long sleep = tickEnd - System.currentTimeMillis();
+                if (sleep > 0) Thread.sleep(sleep);
+
+                for (long taskId : expireCurrentBucket()) {
+                    try {
+                        onDue.accept(taskId);
+                    } catch (RuntimeException e) {
+                        System.err.println("Error delivering reminder: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Scheduler was closed
+        }
+    }
+
+    // Cascades the higher levels that start a new turn at this tick, removes and returns the reminders of the
+    // current level-0 bucket, then advances the tick
+    private synchronized List<Long> expireCurrentBucket() {
+        // Highest level first, so reminders can drop through several levels in one tick
+        if ((tick & ((1L << (bits * wheel.length)) - 1)) == 0) cascade(overflow);
+        for (int level = wheel.length - 1; level > 0; level--) {
+            if ((tick & ((1L << (bits * level)) - 1)) == 0) {
+                cascade(wheel[level][(int) ((tick >>> (bits * level)) & mask)]);
+            }
+        }
+
+        List<Long> due = new ArrayList<>();
+        Bucket bucket = wheel[0][(int) (tick & mask)];
+        while (bucket.head != null) {
+            Reminder reminder = bucket.head;
+            bucket.remove(reminder);
+            remindersByTask.remove(reminder.taskId);
+            due.add(reminder.taskId);
+        }
+        tick++;
+        return due;
+    }
+
+    // Empties a bucket and places its reminders again, which puts them on a lower level. Must hold the lock
+    private void cascade(Bucket bucket) {
+        Reminder reminder = bucket.head;
+        bucket.head = bucket.tail = null;
+        while (reminder != null) {
+            Reminder next = reminder.next;
+            reminder.prev = reminder.next = null;
+            place(reminder);
+            reminder = next;
+        }
+    }
+}
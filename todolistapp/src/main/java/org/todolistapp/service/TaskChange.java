@@ -0,0 +1,25 @@
+package org.todolistapp.service;
+
+/**
+ * TaskChange.java
+
+ * One entry of TaskHandler's ordered change stream.
+
+ * Fields:
+ *  - sequence: position in the stream, starting at 1 and increasing by one per change
+ *  - taskId:   the task that changed
+ *  - task:     the task's stored (CSV) form after the change, or null if it was removed
+
+ * Notes:
+ *  - A change carries the full state of the task rather than the edit made to
+ *    it, so applying the same change twice, or applying only the latest change
+ *    for a task, gives the same result.
+ */
+
+public record TaskChange(long sequence, long taskId, String task) {
+
+    // Returns true if the change removed the task
+    public boolean isRemoval() {
+        return task == null;
+    }
+}
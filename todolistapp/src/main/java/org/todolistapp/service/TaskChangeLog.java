@@ -0,0 +1,75 @@
+package org.todolistapp.service;
+
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * TaskChangeLog.java
+
+ * Bounded in-memory log of the most recent TaskChange entries, kept in a ring buffer.
+
+ * Responsibilities:
+ *  - Number changes with consecutive sequence numbers as they are appended.
+ *  - Return the changes after a given sequence number, waiting for new ones if needed.
+ *  - Tell a reader when the changes it asks for were already dropped.
+
+ * Notes:
+ *  - Once full, every append drops the oldest change. A reader that falls
+ *    that far behind has to start again from a snapshot.
+ *  - Reading by sequence number is O(1) to locate plus the size of the batch.
+ *  - Readers wait on this log's own lock, never on TaskHandler's.
+ */
+
+class TaskChangeLog {
+    private final TaskChange[] ring;
+    private long lastSequence;
+    private int size;
+
+    // Creates an empty log whose first change will get sequence number afterSequence + 1
+    TaskChangeLog(int capacity, long afterSequence) {
+        this.ring = new TaskChange[Math.max(1, capacity)];
+        this.lastSequence = afterSequence;
+    }
+
+    // Appends a change and returns it with its sequence number
+    synchronized TaskChange append(long taskId, String task) {
+        TaskChange change = new TaskChange(++lastSequence, taskId, task);
+        ring[(int) (change.sequence() % ring.length)] = change;
+        if (size < ring.length) size++;
+        notifyAll();
+        return change;
+    }
+
+    // Sequence number of the last appended change, 0 if there is none
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    // Sequence number of the oldest change still kept
+    synchronized long firstSequence() {
+        return lastSequence - size + 1;
+    }
+
+    // Returns up to maxChanges changes after the given sequence number, waiting up to timeoutMillis
+    // for one to arrive. Returns an empty list on timeout and null if changes after it were already dropped
+    synchronized List<TaskChange> changesAfter(long sequence, int maxChanges, long timeoutMillis)
+            throws InterruptedException {
+        long firstAvailable = lastSequence - size + 1;
+        if (sequence < firstAvailable - 1 || sequence > lastSequence) return null;
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (lastSequence == sequence) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) return List.of();
+            wait(remaining);
+        }
+        // Changes may have been dropped while waiting
+        if (sequence < lastSequence - size) return null;
+
+        int count = (int) Math.min(maxChanges, lastSequence - sequence);
+        List<TaskChange> changes = new ArrayList<>(count);
+        for (long next = sequence + 1; next <= sequence + count; next++) {
+            changes.add(ring[(int) (next % ring.length)]);
+        }
+        return changes;
+    }
+}
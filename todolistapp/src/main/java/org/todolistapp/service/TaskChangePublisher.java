@@ -0,0 +1,250 @@
+package org.todolistapp.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+/**
+ * TaskChangePublisher.java
+
+ * Publishes TaskHandler's change stream to any number of subscribers through
+ * the java.util.concurrent.Flow interfaces.
+
+ * Responsibilities:
+ *  - Deliver each subscriber the changes made after it subscribed, in
+ *    sequence order, never more than it requested (backpressure).
+ *  - Keep a bounded buffer per subscriber and apply its OverflowPolicy when
+ *    the buffer is full.
+ *  - Complete every subscription when TaskHandler is closed.
+
+ * Notes:
+ *  - Changes are not pushed by the code that makes them. That code only
+ *    appends to the TaskChangeLog and wakes the subscriptions up; each
+ *    subscription has its own daemon thread that reads the log from its own
+ *    position, fills its buffer and calls the subscriber. A slow subscriber
+ *    therefore only ever delays itself, whatever its policy.
+ *  - A DROP or COALESCE subscription keeps reading the log while it has no
+ *    demand, applying its policy; changes that left the log before it read
+ *    them count as dropped. Subscribers can spot gaps from the sequence numbers.
+ */
+
+public class TaskChangePublisher implements Flow.Publisher<TaskChange>, AutoCloseable {
+    // Buffer size and policy used by subscribe(subscriber)
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+    public static final OverflowPolicy DEFAULT_POLICY = OverflowPolicy.BLOCK;
+    // Most changes read from the log in one step by a DROP or COALESCE subscription
+    private static final int MAX_READ = 1024;
+
+    private final Supplier<TaskChangeLog> changeLog;
+    private final Set<ChangeSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    // Creates a publisher reading the given change log (looked up again on each read, since it can be replaced)
+    TaskChangePublisher(Supplier<TaskChangeLog> changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    // Subscribes with the default buffer size and policy
+    @Override
+    public void subscribe(Flow.Subscriber<? super TaskChange> subscriber) {
+        subscribe(subscriber, DEFAULT_BUFFER_SIZE, DEFAULT_POLICY);
+    }
+
+    // Subscribes with a buffer of the given size (in changes) and the given overflow policy
+    public void subscribe(Flow.Subscriber<? super TaskChange> subscriber, int bufferSize, OverflowPolicy policy) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        ChangeSubscription subscription = new ChangeSubscription(subscriber, Math.max(1, bufferSize),
+                policy != null ? policy : DEFAULT_POLICY, changeLog.get().lastSequence());
+        subscriptions.add(subscription);
+        // A subscriber arriving after close is completed right away
+        if (closed) subscription.complete();
+        subscription.start();
+    }
+
+    // Returns the number of changes discarded across all subscribers because their buffers were full
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Returns the number of active subscriptions
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    // Tells the subscriptions that new changes were appended to the log
+    void signal() {
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.wake();
+        }
+    }
+
+    // Completes every subscription. Changes still buffered are not delivered
+    @Override
+    public void close() {
+        closed = true;
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    // One subscriber: its buffer, its demand and the thread delivering to it
+    private final class ChangeSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super TaskChange> subscriber;
+        private final int capacity;
+        private final OverflowPolicy policy;
+        // Pending changes, keyed by task ID when coalescing and by sequence number otherwise
+        private final LinkedHashMap<Long, TaskChange> buffer = new LinkedHashMap<>();
+        // Sequence number of the last change read from the log
+        private long position;
+        private long demand;
+        private boolean cancelled;
+        private boolean completing;
+        private Throwable failure;
+
+        ChangeSubscription(Flow.Subscriber<? super TaskChange> subscriber, int capacity, OverflowPolicy policy,
+                           long position) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+            this.position = position;
+        }
+
+        void start() {
+            Thread thread = new Thread(this::run, "task-change-subscriber");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("Requested " + n + " changes, must be positive");
+            } else {
+                demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+            }
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+
+        synchronized void wake() {
+            notifyAll();
+        }
+
+        synchronized void complete() {
+            completing = true;
+            notifyAll();
+        }
+
+        // Delivery loop: wait for work, read the log into the buffer, hand the requested changes over
+        private void run() {
+            try {
+                subscriber.onSubscribe(this);
+                while (true) {
+                    List<TaskChange> deliverable = List.of();
+                    Throwable error = null;
+                    boolean completed = false;
+                    synchronized (this) {
+                        while (!cancelled && !completing && failure == null && !canDeliver() && !canRead()) {
+                            wait();
+                        }
+                        if (cancelled) return;
+                        if (failure != null) {
+                            cancelled = true;
+                            error = failure;
+                        } else if (completing) {
+                            cancelled = true;
+                            completed = true;
+                        } else {
+                            if (canRead()) read();
+                            deliverable = takeDeliverable();
+                        }
+                    }
+                    // The subscriber is called without holding the lock, so request() and cancel() never wait on it
+                    if (error != null) {
+                        subscriber.onError(error);
+                        return;
+                    }
+                    if (completed) {
+                        subscriber.onComplete();
+                        return;
+                    }
+                    for (TaskChange change : deliverable) {
+                        subscriber.onNext(change);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                System.err.println("Error delivering task changes: " + e.getMessage());
+            } finally {
+                subscriptions.remove(this);
+            }
+        }
+
+        private boolean canDeliver() {
+            return demand > 0 && !buffer.isEmpty();
+        }
+
+        // True if the log has changes this subscription has not read and it may read them now
+        private boolean canRead() {
+            if (policy == OverflowPolicy.BLOCK && buffer.size() >= capacity) return false;
+            return changeLog.get().lastSequence() > position;
+        }
+
+        // Moves new changes from the log into the buffer, applying the overflow policy
+        private void read() throws InterruptedException {
+            TaskChangeLog log = changeLog.get();
+            int max = (policy == OverflowPolicy.BLOCK) ? capacity - buffer.size() : MAX_READ;
+            List<TaskChange> changes = log.changesAfter(position, max, 0);
+            if (changes == null) {
+                // The log no longer has the changes after this subscription's position
+                if (policy == OverflowPolicy.BLOCK) {
+                    failure = new IllegalStateException("Subscriber fell behind the task change log");
+                    return;
+                }
+                long skipTo = log.firstSequence() - 1;
+                dropped.addAndGet(skipTo - position);
+                position = skipTo;
+                return;
+            }
+            for (TaskChange change : changes) {
+                offer(change);
+                position = change.sequence();
+            }
+        }
+
+        private void offer(TaskChange change) {
+            if (policy == OverflowPolicy.COALESCE) {
+                // Re-inserted at the end, so the buffer stays in sequence order
+                if (buffer.remove(change.taskId()) != null || buffer.size() < capacity) {
+                    buffer.put(change.taskId(), change);
+                    return;
+                }
+            } else if (buffer.size() < capacity) {
+                buffer.put(change.sequence(), change);
+                return;
+            }
+            dropped.incrementAndGet();
+        }
+
+        // Removes as many buffered changes as the subscriber requested
+        private List<TaskChange> takeDeliverable() {
+            int count = (int) Math.min(demand, buffer.size());
+            List<TaskChange> changes = new ArrayList<>(count);
+            Iterator<TaskChange> pending = buffer.values().iterator();
+            for (int i = 0; i < count; i++) {
+                changes.add(pending.next());
+                pending.remove();
+            }
+            demand -= count;
+            return changes;
+        }
+    }
+}
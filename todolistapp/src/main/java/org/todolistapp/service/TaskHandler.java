@@ -1,9 +1,14 @@
 package org.todolistapp.service;
+import java.io.IOException;
 import java.util.*;
 
 import org.todolistapp.models.Task;
 import org.todolistapp.models.TaskCategory;
+import org.todolistapp.models.TaskPriority;
 import org.todolistapp.storage.CsvHandler;
+import org.todolistapp.storage.SyncMode;
+import org.todolistapp.storage.TaskArchive;
+import org.todolistapp.storage.TaskFileWatcher;
 /**
  * taskHandler.java
 
@@ -11,84 +16,661 @@ import org.todolistapp.storage.CsvHandler;
 
  * Responsibilities:
  *  - Maintain an in-memory list of tasks
+ *  - Track which tasks changed since the last save
  *  - Handle ID generation for new tasks
  *  - Provide high-level task operations:
  *      • Add a task
  *      • Delete a task
+ *      • Complete a task (moves it into the archive)
  *      • Update a task
  *      • Retrieve all tasks or filtered tasks
+ *      • Delete many tasks at once
+ *      • Undo and redo the operations above
+ *      • Retrieve a page of tasks in a chosen sort order
+ *  - Merge changes that other programs make to the CSV file
+ *  - Publish every change as an ordered stream of TaskChange entries, and
+ *    apply such a stream (or a snapshot) received from another TaskHandler
+ *  - Keep sorted indexes for each sort order and fire due-date reminders
 
  * Notes:
  *  - Uses csvHandler for persistent storage
+ *  - close() must be called on shutdown so batched saves reach the disk
+ *  - Tasks are kept in a map ordered by ID, so lookups by ID do not scan the
+ *    list and "most recent first" is simply the descending view of the map
+ *  - Each operation saves only the added, updated or removed tasks; the full
+ *    list is rewritten only when the storage journal needs compaction
+ *  - startWatching() picks up external edits of the CSV file; only the
+ *    tasks that actually differ are merged and reported to listeners.
+ *    Conflict policy: the CSV file as written by the other program wins. A
+ *    rewrite replaces every task, including changes this handler had only
+ *    journaled; an appended task whose ID is already in use replaces that
+ *    task. To keep that window small the journal is folded into the CSV
+ *    file when watching starts and after each merge.
+ *  - Each TaskSortOrder other than NEWEST has a sorted set (a red-black tree)
+ *    keyed on (sort key, ID) that is updated on every change. A page of
+ *    tasks is read straight off the index, so switching the sort costs the
+ *    page size rather than a full sort. A task must be taken out of the
+ *    indexes before its fields change and put back afterwards.
+ *  - Every order (NEWEST included) is also indexed per category, so a page
+ *    of one category never walks past tasks of the others. getTasksAfter()
+ *    continues from the last task shown (tailSet on the index), so "Show
+ *    more" does not walk the pages already shown again.
+ *  - The number of tasks per category is kept in counters that are adjusted
+ *    whenever a task is indexed or unindexed, so counts are O(1) to read and
+ *    never need a scan, whatever the batch size
+ *  - Overdue tasks are read from the head of the due-date index, so the cost
+ *    depends on the number of overdue tasks, not on the size of the list
+ *  - startReminders() hands every future due date to a ReminderScheduler
+ *    (a timing wheel); edits reschedule or cancel them in O(1)
+ *  - Undo/redo keeps, per operation, only the stored form of each touched task
+ *    before and after it (see UndoHistory). Undoing or redoing a bulk
+ *    operation is applied as one batch and saved with a single write.
+ *  - Completed tasks leave the live map and go to a TaskArchive next to the
+ *    CSV file (compressed, append-only segments). The archive is only read
+ *    when the history is queried, so it does not slow down startup or any
+ *    operation on the live tasks. Undoing a completion restores the task and
+ *    marks its archive record as reopened. Completing and redoing a
+ *    completion both archive first and only then remove what was archived.
+ *  - Every saved change, including external edits, is also appended to a
+ *    bounded TaskChangeLog with a consecutive sequence number. Readers such
+ *    as a replication leader follow it with awaitChanges() and fall back to
+ *    getSnapshot() when they fall too far behind. The stream ID changes with
+ *    each TaskHandler instance, so sequence numbers are only comparable
+ *    within one stream.
+ *  - The same stream is offered as a Flow.Publisher (getChangePublisher()),
+ *    with a bounded buffer and an OverflowPolicy per subscriber. Making a
+ *    change only appends to the log and wakes the subscribers, so slow
+ *    subscribers never slow down an operation.
+ *  - Methods are synchronized because external changes arrive on the
+ *    file watcher thread
  *  - Sorting ("most recent first") is handled here so the UI always receives
  *    tasks consistently ordered
  */
 
-public class TaskHandler {
+public class TaskHandler implements AutoCloseable {
+    // Default limits of the undo history: operations and task records kept
+    public static final int DEFAULT_UNDO_DEPTH = 100;
+    public static final int DEFAULT_UNDO_RECORDS = 100_000;
+    // Default number of recent changes kept for change stream readers
+    public static final int DEFAULT_CHANGE_LOG_CAPACITY = 100_000;
+    // Directory next to the CSV file that holds the archive of completed tasks
+    public static final String ARCHIVE_SUFFIX = ".archive";
+
+    // All tasks at one point of the change stream
+    public record Snapshot(long streamId, long sequence, List<Task> tasks) { }
+
+    // Listener interface to notify about tasks changed by other programs
+    public interface TaskChangeListener {
+        void onTasksChanged(List<Task> changedTasks, List<Long> removedIds);
+    }
+
+    // Listener interface to notify when a task's due date is reached
+    public interface TaskReminderListener {
+        void onTaskDue(Task task);
+    }
+
     private final CsvHandler storage;
-    private final List<Task> tasks;
+    private final TaskArchive archive;
+    private final NavigableMap<Long, Task> tasks = new TreeMap<>();
+    // Sorted indexes for every sort order except NEWEST, which is the descending view of the map
+    private final Map<TaskSortOrder, NavigableSet<Task>> sortIndexes = new EnumMap<>(TaskSortOrder.class);
+    // The same orders within each category (CATEGORY order within one category is NEWEST), so a filtered page
+    // costs its size, not a walk past every task of the other categories
+    private final Map<TaskCategory, Map<TaskSortOrder, NavigableSet<Task>>> categoryIndexes =
+            new EnumMap<>(TaskCategory.class);
+    // Number of live tasks per category, indexed by TaskCategory ordinal
+    private final int[] categoryCounts = new int[TaskCategory.values().length];
+    // IDs of tasks added/updated and removed since the last save
+    private final Set<Long> dirtyIds = new LinkedHashSet<>();
+    private final Set<Long> removedIds = new LinkedHashSet<>();
+    private final List<TaskChangeListener> listeners = new ArrayList<>();
+    private final long changeStreamId = UUID.randomUUID().getMostSignificantBits();
+    // Replaced by setChangeLogCapacity and read without holding this handler's lock
+    private volatile TaskChangeLog changeLog = new TaskChangeLog(DEFAULT_CHANGE_LOG_CAPACITY, 0);
+    // Delivers the change stream to Flow subscribers, each on its own thread
+    private final TaskChangePublisher changePublisher = new TaskChangePublisher(() -> changeLog);
+    private UndoHistory history = new UndoHistory(DEFAULT_UNDO_DEPTH, DEFAULT_UNDO_RECORDS);
+    private TaskFileWatcher watcher;
+    private ReminderScheduler reminders;
+    private TaskReminderListener reminderListener;
     private long nextId = 1;
 
     // Constructor which loads tasks from CSV file
     public TaskHandler(String filePath) {
-        this.storage = new CsvHandler(filePath);
-        this.tasks = storage.loadTasks();
+        this(new CsvHandler(filePath));
+    }
+
+    // Constructor with durability settings for the underlying CSV file
+    public TaskHandler(String filePath, SyncMode syncMode, long syncIntervalMillis) {
+        this(new CsvHandler(filePath, syncMode, syncIntervalMillis));
+    }
+
+    // Constructor which loads tasks from an already configured storage handler
+    public TaskHandler(CsvHandler storage) {
+        this.storage = storage;
+        this.archive = new TaskArchive(storage.getFilePath() + ARCHIVE_SUFFIX);
+        for (TaskSortOrder order : TaskSortOrder.values()) {
+            if (order != TaskSortOrder.NEWEST) sortIndexes.put(order, new TreeSet<>(order.comparator()));
+        }
+        for (TaskCategory category : TaskCategory.values()) {
+            Map<TaskSortOrder, NavigableSet<Task>> indexes = new EnumMap<>(TaskSortOrder.class);
+            for (TaskSortOrder order : TaskSortOrder.values()) {
+                if (order != TaskSortOrder.CATEGORY) indexes.put(order, new TreeSet<>(order.comparator()));
+            }
+            categoryIndexes.put(category, indexes);
+        }
+        for (Task task : storage.loadTasks()) {
+            tasks.put(task.getId(), task);
+            indexTask(task);
+        }
         initializeIDCounter();
     }
 
     // Initialize task ID counter by counting to the last line in the CSV file + 1
     private void initializeIDCounter() {
         if(!tasks.isEmpty()) {
-            nextId = tasks.stream().mapToLong(Task::getId).max().orElse(0) + 1;
+            nextId = tasks.lastKey() + 1;
         }
     }
 
-    // Add a new task and sort the tasks by most recently added. Defaults category to UNCATEGORIZED if left empty
-    public Task addTask(TaskCategory category, String description) {
+    // Add a new task. Defaults category to UNCATEGORIZED if left empty
+    public synchronized Task addTask(TaskCategory category, String description) {
+        return addTask(category, description, Task.NO_DUE_DATE);
+    }
+
+    // Add a new task with a due date (epoch milliseconds, Task.NO_DUE_DATE for none)
+    public synchronized Task addTask(TaskCategory category, String description, long dueAt) {
+        return addTask(category, description, dueAt, TaskPriority.NONE);
+    }
+
+    // Add a new task with a due date and priority. Defaults priority to NONE if left empty
+    public synchronized Task addTask(TaskCategory category, String description, long dueAt, TaskPriority priority) {
         if (category == null) category = TaskCategory.UNCATEGORIZED;
-        Task newTask = new Task(nextId++, category, description);
-        tasks.add(newTask);
-        sortTasksbyNewest();
-        storage.saveTasks(tasks);
+        Task newTask = new Task(nextId++, category, description, dueAt, priority);
+        tasks.put(newTask.getId(), newTask);
+        indexTask(newTask);
+        markDirty(newTask.getId());
+        history.record(List.of(new UndoHistory.Change(newTask.getId(), null, newTask.toString())));
+        persistChanges();
         return newTask;
     }
 
     // Removes a task by ID. Returns true if deleted, false if not found
-    public boolean removeTask(long id) {
-        boolean removed = tasks.removeIf(task -> task.getId() == id);
-        if (removed) storage.saveTasks(tasks);
+    public synchronized boolean removeTask(long id) {
+        Task task = tasks.remove(id);
+        boolean removed = task != null;
+        if (removed) {
+            unindexTask(task);
+            markRemoved(id);
+            history.record(List.of(new UndoHistory.Change(id, task.toString(), null)));
+            persistChanges();
+        }
         return removed;
     }
 
+    // Removes all the given tasks as one operation: one save and one undo step. Returns how many were removed
+    public synchronized int removeTasks(Collection<Long> ids) {
+        List<UndoHistory.Change> changes = new ArrayList<>();
+        for (long id : ids) {
+            Task task = tasks.remove(id);
+            if (task == null) continue;
+            unindexTask(task);
+            markRemoved(id);
+            changes.add(new UndoHistory.Change(id, task.toString(), null));
+        }
+        history.record(changes);
+        persistChanges();
+        return changes.size();
+    }
+
+    // Marks a task as done: moves it from the live tasks into the archive. Returns false if not found
+    public synchronized boolean completeTask(long id) {
+        return completeTasks(List.of(id)) == 1;
+    }
+
+    // Completes all the given tasks as one operation: one archive write, one save and one undo step.
+    // Returns how many were completed
+    public synchronized int completeTasks(Collection<Long> ids) {
+        List<Task> completed = new ArrayList<>();
+        for (long id : new LinkedHashSet<>(ids)) {
+            Task task = tasks.get(id);
+            if (task != null) completed.add(task);
+        }
+        if (completed.isEmpty()) return 0;
+
+        // Archived before being removed, so a crash in between duplicates a task in the history instead of losing it
+        List<Long> sequences = archive.append(completed, System.currentTimeMillis());
+        // If the archive failed part-way, the tasks it did archive (a prefix) are still completed
+        if (sequences.isEmpty()) return 0;
+        completed = completed.subList(0, sequences.size());
+
+        List<UndoHistory.Change> changes = new ArrayList<>(completed.size());
+        for (int i = 0; i < completed.size(); i++) {
+            Task task = completed.get(i);
+            tasks.remove(task.getId());
+            unindexTask(task);
+            markRemoved(task.getId());
+            changes.add(new UndoHistory.Change(task.getId(), task.toString(), null, sequences.get(i)));
+        }
+        history.record(changes);
+        persistChanges();
+        return changes.size();
+    }
+
+    // Returns up to limit completed tasks, most recently completed first, skipping the first offset matches.
+    // A null category or blank text matches everything. Reads the archive lazily, outside the task lock
+    public List<TaskArchive.Entry> getCompletedTasks(TaskCategory category, String text, int offset, int limit) {
+        return archive.query(category, text, offset, limit);
+    }
+
+    // Returns the number of completed tasks in the archive
+    public long getCompletedTaskCount() {
+        return archive.size();
+    }
+
     // Updates the category or description of an existing task. Returns true if changes successfully, false if not
-    public boolean updateTask(long id, TaskCategory category, String description) {
-        for(Task task : tasks) {
-            if(task.getId() == id) {
-                if(category != null) task.setCategory(category);
-                if(description != null) task.setDescription(description);
-
-                storage.saveTasks(tasks);
-                return true;
+    public synchronized boolean updateTask(long id, TaskCategory category, String description) {
+        Task task = tasks.get(id);
+        if(task == null) return false;
+        return updateTask(id, category, description, task.getDueAt());
+    }
+
+    // Updates an existing task including its due date (Task.NO_DUE_DATE removes it)
+    public synchronized boolean updateTask(long id, TaskCategory category, String description, long dueAt) {
+        return updateTask(id, category, description, dueAt, null);
+    }
+
+    // Updates an existing task including its due date and priority. A null priority is left unchanged
+    public synchronized boolean updateTask(long id, TaskCategory category, String description, long dueAt,
+                                           TaskPriority priority) {
+        Task task = tasks.get(id);
+        if(task == null) return false;
+
+        String before = task.toString();
+        // The task's position in the sorted indexes changes, so it has to be re-indexed
+        unindexTask(task);
+        if(category != null) task.setCategory(category);
+        if(description != null) task.setDescription(description);
+        task.setDueAt(dueAt);
+        if(priority != null) task.setPriority(priority);
+        indexTask(task);
+
+        markDirty(id);
+        history.record(List.of(new UndoHistory.Change(id, before, task.toString())));
+        persistChanges();
+        return true;
+    }
+
+    // Reverts the most recent operation. Returns false if there is nothing to undo
+    public synchronized boolean undo() {
+        List<UndoHistory.Change> changes = history.popUndo();
+        if (changes == null) return false;
+        // Reverted last change first, in case an operation touched the same task twice
+        List<Long> reopened = new ArrayList<>();
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            restoreTask(changes.get(i).id(), changes.get(i).before());
+            if (changes.get(i).archived()) reopened.add(changes.get(i).archiveSequence());
+        }
+        archive.reopen(reopened);
+        persistChanges();
+        history.pushRedo(changes);
+        return true;
+    }
+
+    // Applies the most recently undone operation again. Returns false if there is nothing to redo,
+    // or if none of it could be redone because the archive failed
+    public synchronized boolean redo() {
+        List<UndoHistory.Change> changes = history.popRedo();
+        if (changes == null) return false;
+        // Completions are archived again before their tasks leave the live list, as in completeTasks
+        List<UndoHistory.Change> redone = rearchive(changes);
+        if (redone.isEmpty()) {
+            history.pushRedo(changes);
+            return false;
+        }
+        for (UndoHistory.Change change : redone) {
+            restoreTask(change.id(), change.after());
+        }
+        persistChanges();
+        history.pushUndo(redone);
+        return true;
+    }
+
+    // Archives redone completions again and returns the changes to apply, pointing at their new archive records.
+    // If the archive failed part-way, the completions it did not archive are left out and their tasks stay live
+    private List<UndoHistory.Change> rearchive(List<UndoHistory.Change> changes) {
+        List<Task> rearchived = new ArrayList<>();
+        for (UndoHistory.Change change : changes) {
+            if (change.archived()) rearchived.add(Task.fromCSV(change.before()));
+        }
+        if (rearchived.isEmpty()) return changes;
+
+        List<Long> sequences = archive.append(rearchived, System.currentTimeMillis());
+        List<UndoHistory.Change> updated = new ArrayList<>(changes.size());
+        int next = 0;
+        for (UndoHistory.Change change : changes) {
+            if (change.archived()) {
+                if (next >= sequences.size()) continue;
+                change = new UndoHistory.Change(change.id(), change.before(), change.after(), sequences.get(next++));
+            }
+            updated.add(change);
+        }
+        return updated;
+    }
+
+    // Returns true if there is an operation to undo
+    public synchronized boolean canUndo() { return history.canUndo(); }
+    // Returns true if there is an operation to redo
+    public synchronized boolean canRedo() { return history.canRedo(); }
+
+    // Replaces the undo history with one using the given limits (operations and total task records)
+    public synchronized void setUndoLimits(int maxDepth, int maxRecords) {
+        history = new UndoHistory(maxDepth, maxRecords);
+    }
+
+    // Returns the ID of this handler's change stream
+    public long getChangeStreamId() {
+        return changeStreamId;
+    }
+
+    // Returns the sequence number of the latest change, 0 if nothing changed yet
+    public long getLastChangeSequence() {
+        return changeLog.lastSequence();
+    }
+
+    // Returns up to maxChanges changes after the given sequence number, waiting up to timeoutMillis for one.
+    // Returns an empty list on timeout, and null if those changes are no longer kept (use getSnapshot instead).
+    // Waits without blocking other operations on this handler
+    public List<TaskChange> awaitChanges(long afterSequence, int maxChanges, long timeoutMillis)
+            throws InterruptedException {
+        return changeLog.changesAfter(afterSequence, maxChanges, timeoutMillis);
+    }
+
+    // Returns the publisher of the change stream. Subscribers receive the changes made after they subscribe
+    public TaskChangePublisher getChangePublisher() {
+        return changePublisher;
+    }
+
+    // Returns all tasks together with the sequence number of the last change they include
+    public synchronized Snapshot getSnapshot() {
+        return new Snapshot(changeStreamId, changeLog.lastSequence(), getAllTasks());
+    }
+
+    // Changes how many recent changes are kept. Readers behind the current sequence number need a new snapshot
+    public synchronized void setChangeLogCapacity(int capacity) {
+        changeLog = new TaskChangeLog(capacity, changeLog.lastSequence());
+    }
+
+    // Applies changes received from another handler's change stream as one batch and one save.
+    // The undo history is cleared, since it no longer matches the tasks
+    public synchronized void applyReplicatedChanges(List<TaskChange> changes) {
+        if (changes.isEmpty()) return;
+        for (TaskChange change : changes) {
+            restoreTask(change.taskId(), change.task());
+        }
+        if (!tasks.isEmpty()) nextId = Math.max(nextId, tasks.lastKey() + 1);
+        history.clear();
+        persistChanges();
+    }
+
+    // Replaces all tasks with a snapshot of another handler. Only tasks that differ are saved
+    public synchronized void applyReplicatedSnapshot(List<Task> snapshot) {
+        Map<Long, Task> incoming = new HashMap<>();
+        for (Task task : snapshot) incoming.put(task.getId(), task);
+        for (Long id : new ArrayList<>(tasks.keySet())) {
+            if (!incoming.containsKey(id)) restoreTask(id, null);
+        }
+        for (Task task : snapshot) {
+            Task current = tasks.get(task.getId());
+            if (current == null || !current.toString().equals(task.toString())) {
+                restoreTask(task.getId(), task.toString());
             }
         }
-        return false;
+        if (!tasks.isEmpty()) nextId = Math.max(nextId, tasks.lastKey() + 1);
+        history.clear();
+        persistChanges();
+    }
+
+    // Puts a task back into the state stored in csv (null = absent), without recording an undo step
+    private void restoreTask(long id, String csv) {
+        Task current = tasks.remove(id);
+        if (current != null) unindexTask(current);
+        if (csv == null) {
+            if (current != null) markRemoved(id);
+            return;
+        }
+        Task task = Task.fromCSV(csv);
+        tasks.put(id, task);
+        indexTask(task);
+        markDirty(id);
     }
 
     // Returns all tasks sorted from newest to oldest
-    public List<Task> getAllTasks() {
-        sortTasksbyNewest();
-        return new ArrayList<>(tasks);
+    public synchronized List<Task> getAllTasks() {
+        return new ArrayList<>(tasks.descendingMap().values());
     }
 
     // Returns list of tasks based on a given category
-    public List<Task> getTasksByCategory(TaskCategory category) {
-        return tasks.stream().filter(task -> task.getCategory() == category)
-                .sorted(Comparator.comparingLong(Task::getId).reversed()).toList();
+    public synchronized List<Task> getTasksByCategory(TaskCategory category) {
+        return new ArrayList<>(categoryIndexes.get(category).get(TaskSortOrder.NEWEST));
+    }
+
+    // Returns up to limit tasks in the given order, skipping the first offset ones. A null category means all
+    public synchronized List<Task> getTasks(TaskSortOrder order, TaskCategory category, int offset, int limit) {
+        return page(view(order, category, null), offset, limit);
+    }
+
+    // Returns up to limit tasks in the given order that come after the given task, or from the start if it is null.
+    // The task is only used as a sort key (keyset paging), so callers should pass a copy if it may be edited
+    public synchronized List<Task> getTasksAfter(TaskSortOrder order, TaskCategory category, Task after, int limit) {
+        return page(view(order, category, after), 0, limit);
+    }
+
+    // Returns the tasks of one category (null = all) in the given order, starting after the given task if any
+    private Collection<Task> view(TaskSortOrder order, TaskCategory category, Task after) {
+        if (category == null && order == TaskSortOrder.NEWEST) {
+            NavigableMap<Long, Task> newest = tasks.descendingMap();
+            return (after == null ? newest : newest.tailMap(after.getId(), false)).values();
+        }
+        NavigableSet<Task> index = (category == null) ? sortIndexes.get(order)
+                : categoryIndexes.get(category).get(order == TaskSortOrder.CATEGORY ? TaskSortOrder.NEWEST : order);
+        return (after == null) ? index : index.tailSet(after, false);
     }
 
-    // Reorder list of tasks from newest to oldest based on its ID
-    private void sortTasksbyNewest() {
-        tasks.sort(Comparator.comparingLong(Task::getId).reversed());
+    private static List<Task> page(Collection<Task> view, int offset, int limit) {
+        List<Task> page = new ArrayList<>(Math.min(limit, 1024));
+        int skipped = 0;
+        for (Task task : view) {
+            if (page.size() >= limit) break;
+            if (skipped++ < offset) continue;
+            page.add(task);
+        }
+        return page;
+    }
+
+    // Returns the number of tasks in a category. A null category means all tasks
+    public synchronized int getTaskCount(TaskCategory category) {
+        if (category == null) return tasks.size();
+        return categoryCounts[category.ordinal()];
+    }
+
+    // Returns tasks due at or before the given time, the longest overdue first
+    public synchronized List<Task> getOverdueTasks(long now) {
+        List<Task> overdue = new ArrayList<>();
+        for (Task task : sortIndexes.get(TaskSortOrder.DUE_DATE)) {
+            if (!task.isOverdue(now)) break;
+            overdue.add(task);
+        }
+        return overdue;
+    }
+
+    // Starts firing reminders for due dates that are still in the future. May be called from any thread (the UI
+    // calls it on the FX thread); the listener is called on the reminder-scheduler thread
+    public synchronized void startReminders(TaskReminderListener listener) {
+        if (reminders != null) return;
+        reminderListener = listener;
+        reminders = new ReminderScheduler(this::onReminderDue);
+        long now = System.currentTimeMillis();
+        NavigableSet<Task> dueIndex = sortIndexes.get(TaskSortOrder.DUE_DATE);
+        for (Task task : dueIndex.tailSet(new Task(Long.MIN_VALUE, null, null, now), false)) {
+            if (!task.hasDueDate()) break;
+            reminders.schedule(task.getId(), task.getDueAt());
+        }
+    }
+
+    // Passes a fired reminder on, unless the task was removed in the meantime
+    private void onReminderDue(long id) {
+        Task task;
+        TaskReminderListener listener;
+        synchronized (this) {
+            task = tasks.get(id);
+            listener = reminderListener;
+        }
+        if (task != null && listener != null) listener.onTaskDue(task);
+    }
+
+    // Adds a task to the sorted indexes and category counts, and schedules its reminder
+    private void indexTask(Task task) {
+        for (NavigableSet<Task> index : sortIndexes.values()) {
+            index.add(task);
+        }
+        for (NavigableSet<Task> index : categoryIndexes.get(task.getCategory()).values()) {
+            index.add(task);
+        }
+        categoryCounts[task.getCategory().ordinal()]++;
+        if (reminders != null && task.hasDueDate() && task.getDueAt() > System.currentTimeMillis()) {
+            reminders.schedule(task.getId(), task.getDueAt());
+        }
     }
 
+    // Removes a task from the sorted indexes and category counts, and cancels its reminder.
+    // Must run before its fields change
+    private void unindexTask(Task task) {
+        for (NavigableSet<Task> index : sortIndexes.values()) {
+            index.remove(task);
+        }
+        for (NavigableSet<Task> index : categoryIndexes.get(task.getCategory()).values()) {
+            index.remove(task);
+        }
+        categoryCounts[task.getCategory().ordinal()]--;
+        if (reminders != null && task.hasDueDate()) reminders.cancel(task.getId());
+    }
+
+    // Registers a listener for tasks changed by other programs. Called on the file watcher thread
+    public synchronized void addChangeListener(TaskChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    // Starts watching the CSV file for changes made by other programs
+    public synchronized void startWatching() {
+        if (watcher != null) return;
+        // Other programs only read the CSV file, so it must hold every task before they are expected to use it
+        compactForReaders();
+        try {
+            watcher = new TaskFileWatcher(storage.getFilePath(), this::reloadExternalChanges);
+        } catch (IOException e) {
+            System.err.println("Error watching CSV file: " + e.getMessage());
+        }
+    }
+
+    // Merges changes made to the CSV file by other programs and notifies the listeners.
+    // Returns true if any task changed
+    public synchronized boolean reloadExternalChanges() {
+        CsvHandler.ExternalChanges changes = storage.readExternalChanges();
+        if (changes == null) return false;
+
+        List<Task> changedTasks = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        Set<Long> seenIds = new HashSet<>();
+        for (Task task : changes.tasks()) {
+            seenIds.add(task.getId());
+            Task current = tasks.get(task.getId());
+            // Only tasks whose stored form differs from ours are merged
+            if (current == null || !current.toString().equals(task.toString())) {
+                if (current != null) unindexTask(current);
+                tasks.put(task.getId(), task);
+                indexTask(task);
+                changedTasks.add(task);
+            }
+        }
+        if (!changes.appendOnly()) {
+            Iterator<Long> ids = tasks.keySet().iterator();
+            while (ids.hasNext()) {
+                long id = ids.next();
+                if (!seenIds.contains(id)) {
+                    unindexTask(tasks.get(id));
+                    ids.remove();
+                    removed.add(id);
+                }
+            }
+        }
+        if (!tasks.isEmpty()) nextId = Math.max(nextId, tasks.lastKey() + 1);
+        // After an append the journal may still hold changes the other program cannot see; fold them in
+        compactForReaders();
+
+        if (changedTasks.isEmpty() && removed.isEmpty()) return false;
+        // Undo entries hold our version of the tasks from before the merge and would write it over the other
+        // program's changes, as after a replicated batch
+        history.clear();
+        publishChanges(changedTasks, removed);
+        for (TaskChangeListener listener : listeners) {
+            listener.onTasksChanged(changedTasks, removed);
+        }
+        return true;
+    }
+
+    // Writes a full save if the CSV file is missing changes that only the journal holds
+    private void compactForReaders() {
+        if (!storage.hasJournaledChanges()) return;
+        storage.saveTasks(getAllTasks());
+        storage.flush();
+    }
+
+    // Records that a task was added or updated since the last save
+    private void markDirty(long id) {
+        removedIds.remove(id);
+        dirtyIds.add(id);
+    }
+
+    // Records that a task was removed since the last save
+    private void markRemoved(long id) {
+        dirtyIds.remove(id);
+        removedIds.add(id);
+    }
+
+    // Saves the tracked changes, compacting the storage into a full save once its journal grows too large
+    private void persistChanges() {
+        if (dirtyIds.isEmpty() && removedIds.isEmpty()) return;
+
+        List<Task> changedTasks = new ArrayList<>(dirtyIds.size());
+        for (long id : dirtyIds) {
+            Task task = tasks.get(id);
+            if (task != null) changedTasks.add(task);
+        }
+        storage.saveChanges(changedTasks, new ArrayList<>(removedIds));
+        publishChanges(changedTasks, removedIds);
+        dirtyIds.clear();
+        removedIds.clear();
+
+        if (storage.needsCompaction(tasks.size())) {
+            storage.saveTasks(getAllTasks());
+        }
+    }
+
+    // Appends saved changes to the change log
+    private void publishChanges(Collection<Task> changedTasks, Collection<Long> removed) {
+        TaskChangeLog log = changeLog;
+        for (Task task : changedTasks) log.append(task.getId(), task.toString());
+        for (long id : removed) log.append(id, null);
+        changePublisher.signal();
+    }
+
+    // Writes any batched saves to disk and releases the storage
+    @Override
+    public synchronized void close() {
+        if (watcher != null) watcher.close();
+        if (reminders != null) reminders.close();
+        changePublisher.close();
+        storage.close();
+    }
 }
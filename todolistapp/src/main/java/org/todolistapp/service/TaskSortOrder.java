@@ -0,0 +1,37 @@
+package org.todolistapp.service;
+
+import org.todolistapp.models.Task;
+import org.todolistapp.models.TaskPriority;
+
+import java.util.Comparator;
+/**
+ * TaskSortOrder.java
+
+ * Defines the orders the task list can be shown in. Each order ends in the
+ * task ID, so no two tasks compare as equal and every order can back a
+ * sorted index in TaskHandler.
+
+ * NEWEST   - most recently added first
+ * PRIORITY - highest priority first, then newest
+ * DUE_DATE - soonest due first, tasks without a due date last, then newest
+ * CATEGORY - by category, then newest
+ */
+
+public enum TaskSortOrder {
+    NEWEST(Comparator.comparingLong(Task::getId).reversed()),
+    PRIORITY(Comparator.comparing(Task::getPriority, Comparator.<TaskPriority>reverseOrder())
+            .thenComparing(Comparator.comparingLong(Task::getId).reversed())),
+    DUE_DATE(Comparator.comparingLong((Task task) -> task.hasDueDate() ? task.getDueAt() : Long.MAX_VALUE)
+            .thenComparing(Comparator.comparingLong(Task::getId).reversed())),
+    CATEGORY(Comparator.comparing(Task::getCategory)
+            .thenComparing(Comparator.comparingLong(Task::getId).reversed()));
+
+    private final Comparator<Task> comparator;
+
+    TaskSortOrder(Comparator<Task> comparator) {
+        this.comparator = comparator;
+    }
+
+    // Returns the comparator defining this order
+    public Comparator<Task> comparator() { return comparator; }
+}
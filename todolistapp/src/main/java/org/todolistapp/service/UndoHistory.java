@@ -0,0 +1,115 @@
+package org.todolistapp.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+/**
+ * UndoHistory.java
+
+ * Bounded undo/redo stacks for TaskHandler.
+
+ * Each undoable operation is stored as one entry holding a compact record per
+ * task it touched: the task's ID plus its stored (CSV) form before and after
+ * the operation. A null form means the task did not exist on that side, so
+ * the same record describes adds, removes and edits, and can be applied in
+ * either direction. No snapshots of the task list are ever taken. Completing a
+ * task additionally remembers the archive record it produced, so undoing the
+ * completion can mark that record as reopened.
+
+ * Limits:
+ *  - maxDepth caps the number of entries that can be undone.
+ *  - maxRecords caps the total number of task records across both stacks, so
+ *    memory stays bounded even when bulk operations touch huge numbers of tasks.
+ *  - The oldest entries are dropped first. An operation bigger than maxRecords
+ *    on its own cannot be undone and clears the history instead.
+ */
+
+class UndoHistory {
+    // Marks a change that did not move its task into the archive
+    static final long NOT_ARCHIVED = -1;
+
+    // State of one task before and after an operation (null = task absent).
+    // archiveSequence is the archive record written when the task was completed
+    record Change(long id, String before, String after, long archiveSequence) {
+        Change(long id, String before, String after) {
+            this(id, before, after, NOT_ARCHIVED);
+        }
+
+        boolean archived() { return archiveSequence != NOT_ARCHIVED; }
+    }
+
+    private final Deque<List<Change>> undoStack = new ArrayDeque<>();
+    private final Deque<List<Change>> redoStack = new ArrayDeque<>();
+    private final int maxDepth;
+    private final int maxRecords;
+    private int records;
+
+    UndoHistory(int maxDepth, int maxRecords) {
+        this.maxDepth = Math.max(0, maxDepth);
+        this.maxRecords = Math.max(0, maxRecords);
+    }
+
+    // Records a new operation. A new operation makes everything that was undone unreachable
+    void record(List<Change> changes) {
+        if (changes.isEmpty()) return;
+        clearRedo();
+        if (changes.size() > maxRecords || maxDepth == 0) {
+            clear();
+            return;
+        }
+        undoStack.push(changes);
+        records += changes.size();
+        trim();
+    }
+
+    // Takes the most recent operation to undo, or null if there is none
+    List<Change> popUndo() {
+        List<Change> changes = undoStack.poll();
+        if (changes != null) records -= changes.size();
+        return changes;
+    }
+
+    // Takes the most recently undone operation to redo, or null if there is none
+    List<Change> popRedo() {
+        List<Change> changes = redoStack.poll();
+        if (changes != null) records -= changes.size();
+        return changes;
+    }
+
+    // Stores an operation that was just undone, so it can be redone
+    void pushRedo(List<Change> changes) {
+        redoStack.push(changes);
+        records += changes.size();
+        trim();
+    }
+
+    // Stores an operation that was just redone, so it can be undone again
+    void pushUndo(List<Change> changes) {
+        undoStack.push(changes);
+        records += changes.size();
+        trim();
+    }
+
+    boolean canUndo() { return !undoStack.isEmpty(); }
+    boolean canRedo() { return !redoStack.isEmpty(); }
+
+    // Forgets every operation
+    void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        records = 0;
+    }
+
+    private void clearRedo() {
+        for (List<Change> changes : redoStack) records -= changes.size();
+        redoStack.clear();
+    }
+
+    // Drops the oldest entries until both limits hold again
+    private void trim() {
+        while (undoStack.size() > maxDepth) records -= undoStack.removeLast().size();
+        while (redoStack.size() > maxDepth) records -= redoStack.removeLast().size();
+        while (records > maxRecords && !undoStack.isEmpty()) records -= undoStack.removeLast().size();
+        while (records > maxRecords && !redoStack.isEmpty()) records -= redoStack.removeLast().size();
+    }
+}
@@ -2,38 +2,134 @@ package org.todolistapp.storage;
 import org.todolistapp.models.Task;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 /**
  * csvHandler.java
 
  * This class is responsible for handling persistent storage of Task objects
  * in the To-Do List application. It provides methods to:
  *   - Load all tasks from a CSV file
+ *   - Stream all tasks one at a time, for exports of any size
  *   - Save a list of tasks back to the CSV file
+ *   - Save only the tasks that changed, through an append-only journal
+ *   - Detect and read changes made to the CSV file by other programs
  *   - Append new tasks to storage
  *   - Remove tasks from storage by ID
 
  * Responsibilities:
  *   - Perform all file I/O operations related to tasks
  *   - Convert between Task objects and CSV string representation
+ *   - Transparently compress/decompress the file when its name ends in ".gz"
+ *   - Keep the file intact across crashes by saving atomically
 
  * Notes:
  *   - Does not implement business logic such as task ID generation,
  *     sorting, or filtering by category. Those responsibilities are
  *     handled by the taskHandler class.
+ *   - Compressed files use the JDK's Deflate (gzip) codec and are always
+ *     streamed, so the whole file is never held uncompressed in memory.
+ *     Appends add a new gzip member, which readers handle transparently.
+ *   - Saves go to a temporary file which is fsynced and then renamed over
+ *     the live file. The SyncMode decides whether that happens on every
+ *     save, once per interval for a burst of saves, or only on close.
+ *   - Incremental saves append "+<task>" and "-<id>" records to a journal
+ *     file next to the CSV file, so their cost depends on the number of
+ *     changes rather than the number of tasks. Loading replays the journal
+ *     over the CSV file, and a full save (compaction) empties it again.
+ *   - Only journal records that end in a newline are replayed. A record
+ *     torn by a crash while appending is cut off when the journal is read;
+ *     a complete record that does not parse is reported and skipped.
+ *   - The size, modification time and last bytes of the CSV file are
+ *     remembered after each read/write of this handler. A change that only
+ *     appended to the file is read from the old end on; anything else
+ *     falls back to a full load.
+ *   - A rewrite by another program wins: the journal and any pending save
+ *     predate it and are dropped instead of being replayed over it.
  */
 
-public class CsvHandler {
+public class CsvHandler implements AutoCloseable {
+    // File extension which switches the storage file to compressed mode
+    public static final String COMPRESSED_EXTENSION = ".gz";
+    // Suffix of the temporary file that saves are written to before the rename
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Suffix of the journal file that incremental saves are appended to
+    private static final String JOURNAL_SUFFIX = ".journal";
+    // Journal record prefixes for an added/updated task and a removed task ID
+    private static final char UPSERT_RECORD = '+';
+    private static final char REMOVE_RECORD = '-';
+    // The journal is never compacted below this many records
+    private static final int MIN_COMPACTION_RECORDS = 1000;
+    // Number of trailing bytes compared to tell an append from a rewrite
+    private static final int TAIL_FINGERPRINT_BYTES = 64;
+    // Buffer size used for the compression streams
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final String filePath;
+    private final boolean compressed;
+    private final SyncMode syncMode;
+    private final long syncIntervalMillis;
+    private final ScheduledExecutorService flusher;
+    private final Object writeLock = new Object();
+
+    // Latest save that has not been written yet (INTERVAL and ON_CLOSE modes)
+    private List<String> pendingLines;
+    // Set by close(); later saves are written straight away since nothing would flush them (guarded by this)
+    private boolean closed;
+    // Open journal, its record count and whether a sync of it is already scheduled (guarded by writeLock)
+    private FileChannel journalChannel;
+    private long journalRecords;
+    private boolean journalSyncScheduled;
+    // State of the CSV file as this handler last wrote or read it (guarded by writeLock)
+    private long knownLength;
+    private long knownModified;
+    private byte[] knownTail = new byte[0];
+
+    /**
+     * Changes found in the CSV file after another program wrote to it.
+     * If appendOnly is true, tasks holds just the appended records;
+     * otherwise it holds every task, as loadTasks would return them.
+     */
+    public record ExternalChanges(List<Task> tasks, boolean appendOnly) { }
 
     // Constructor
     public CsvHandler(String filePath) {
+        this(filePath, SyncMode.EVERY_WRITE, 0);
+    }
+
+    // Constructor with durability settings. The interval is only used by SyncMode.INTERVAL
+    public CsvHandler(String filePath, SyncMode syncMode, long syncIntervalMillis) {
         this.filePath = filePath;
+        this.compressed = filePath.endsWith(COMPRESSED_EXTENSION);
+        this.syncMode = (syncMode != null) ? syncMode : SyncMode.EVERY_WRITE;
+        this.syncIntervalMillis = Math.max(0, syncIntervalMillis);
+        this.flusher = (this.syncMode == SyncMode.INTERVAL) ? createFlusher() : null;
         checkFile();
     }
 
-    // Checks if the file exists, and if not, create a new CSV file
+    // Returns true if the storage file is gzip compressed
+    public boolean isCompressed() { return compressed; }
+    // Returns the durability mode of this handler
+    public SyncMode getSyncMode() { return syncMode; }
+    // Returns the path of the CSV file
+    public String getFilePath() { return filePath; }
+
+    // Checks if the file exists, and if not, create a new CSV file. Leftovers of an interrupted save are removed
     private void checkFile() {
         File file = new File(filePath);
         if (!file.exists()) {
@@ -44,52 +140,561 @@ public class CsvHandler {
                 System.err.println("Error creating CSV file: " + e.getMessage());
             }
         }
+        try {
+            Files.deleteIfExists(tempPath());
+        } catch (IOException e) {
+            System.err.println("Error removing temporary CSV file: " + e.getMessage());
+        }
     }
 
-    // Loads list of tasks from the CSV file
+    // Loads list of tasks from the CSV file, with the journaled changes applied
     public List<Task> loadTasks() {
-        List<Task> tasks = new ArrayList<>();
-        try(BufferedReader reader = new BufferedReader(new FileReader(filePath))){
-            String line;
-            while((line = reader.readLine()) != null && !line.isBlank()){
-                tasks.add(Task.fromCSV(line));
-            }
+        flush();
+        Map<Long, Task> tasks = readStoredTasks();
+        replayJournal(tasks);
+        return new ArrayList<>(tasks.values());
+    }
+
+    // Reads the tasks of the CSV file alone, without the journal
+    private Map<Long, Task> readStoredTasks() {
+        Map<Long, Task> tasks = new LinkedHashMap<>();
+        // Remembered before reading, so a write by another program during the read is picked up later
+        synchronized (writeLock) {
+            rememberFileState();
         }
-        catch(IOException e){
-            System.err.println("Error fetching tasks: " + e.getMessage());
+        // An empty file has no gzip header, so there is nothing to decode
+        if (new File(filePath).length() > 0) {
+            try(BufferedReader reader = openReader(Paths.get(filePath))){
+                String line;
+                while((line = reader.readLine()) != null && !line.isBlank()){
+                    Task task = Task.fromCSV(line);
+                    tasks.put(task.getId(), task);
+                }
+            }
+            catch(IOException e){
+                System.err.println("Error fetching tasks: " + e.getMessage());
+            }
         }
         return tasks;
     }
 
-    // Saves the new list of tasks to the CSV file
+    // Applies the journal records on top of the tasks read from the CSV file
+    private void replayJournal(Map<Long, Task> tasks) {
+        for (Map.Entry<Long, Task> entry : readJournal().entrySet()) {
+            if (entry.getValue() == null) tasks.remove(entry.getKey());
+            else tasks.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Reads the journal into the latest state of each task it touches (null = removed)
+    private Map<Long, Task> readJournal() {
+        Map<Long, Task> latest = new LinkedHashMap<>();
+        synchronized (writeLock) {
+            journalRecords = 0;
+            Path journal = journalPath();
+            if (!Files.exists(journal) || journal.toFile().length() == 0) return latest;
+            boolean torn;
+            try (BufferedReader reader = openReader(journal)) {
+                StringBuilder line = new StringBuilder();
+                int c;
+                while ((c = reader.read()) >= 0) {
+                    if (c != '\n') {
+                        line.append((char) c);
+                        continue;
+                    }
+                    // Only records that end in a newline were written completely. A complete record that
+                    // does not parse is skipped, so the records after it are still replayed
+                    try {
+                        readJournalRecord(line, latest);
+                    } catch (RuntimeException e) {
+                        System.err.println("Skipped malformed task journal record: " + e.getMessage());
+                    }
+                    line.setLength(0);
+                }
+                torn = !line.isEmpty();
+            } catch (IOException e) {
+                System.err.println("Stopped replaying task journal: " + e.getMessage());
+                torn = true;
+            }
+            // A crash while appending can leave a torn last record. It is cut off, keeping everything before it,
+            // so the next append does not end up glued to it
+            if (torn) rewriteJournal(latest);
+        }
+        return latest;
+    }
+
+    // Applies one complete journal line to the latest task states. Must hold writeLock
+    private void readJournalRecord(StringBuilder line, Map<Long, Task> latest) {
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\r') end--;
+        if (line.substring(0, end).isBlank()) return;
+        String record = line.substring(1, end);
+        if (line.charAt(0) == UPSERT_RECORD) {
+            Task task = Task.fromCSV(record);
+            latest.put(task.getId(), task);
+        } else if (line.charAt(0) == REMOVE_RECORD) {
+            latest.put(Long.parseLong(record), null);
+        } else {
+            throw new IllegalArgumentException("Unknown journal record: " + line);
+        }
+        journalRecords++;
+    }
+
+    // Replaces the journal with one record per task state, written to a temporary file first. Must hold writeLock
+    private void rewriteJournal(Map<Long, Task> latest) {
+        closeJournal(false);
+        Path journal = journalPath();
+        Path temp = Paths.get(journal + TEMP_SUFFIX);
+        try {
+            if (latest.isEmpty()) {
+                Files.deleteIfExists(journal);
+            } else {
+                FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                try (BufferedWriter writer = encode(syncingStream(channel))) {
+                    for (Map.Entry<Long, Task> entry : latest.entrySet()) {
+                        writer.write(entry.getValue() == null
+                                ? REMOVE_RECORD + Long.toString(entry.getKey())
+                                : UPSERT_RECORD + entry.getValue().toString());
+                        writer.newLine();
+                    }
+                }
+                moveIntoPlace(temp, journal);
+                syncDirectory(journal.getParent());
+            }
+            journalRecords = latest.size();
+        } catch (IOException e) {
+            System.err.println("Error repairing task journal: " + e.getMessage());
+        }
+    }
+
+    // Passes every task to the action, one at a time, with the journaled changes applied.
+    // Only the journal is held in memory, never the whole list. Returns the number of tasks
+    public long forEachTask(Consumer<Task> action) {
+        flush();
+        Map<Long, Task> journaled = readJournal();
+        long count = 0;
+        if (new File(filePath).length() > 0) {
+            try (BufferedReader reader = openReader(Paths.get(filePath))) {
+                String line;
+                while ((line = reader.readLine()) != null && !line.isBlank()) {
+                    Task task = Task.fromCSV(line);
+                    if (journaled.containsKey(task.getId())) {
+                        // The journaled state replaces the stored one, or drops it if the task was removed
+                        task = journaled.remove(task.getId());
+                        if (task == null) continue;
+                    }
+                    action.accept(task);
+                    count++;
+                }
+            } catch (IOException e) {
+                System.err.println("Error fetching tasks: " + e.getMessage());
+            }
+        }
+        // Tasks added since the last full save only exist in the journal
+        for (Task task : journaled.values()) {
+            if (task == null) continue;
+            action.accept(task);
+            count++;
+        }
+        return count;
+    }
+
+    // Saves the new list of tasks to the CSV file, either now or batched depending on the sync mode
     public void saveTasks(List<Task> tasks) {
-        try(BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, false))){
-            for(Task task : tasks){
-                writer.write(task.toString());
+        List<String> lines = new ArrayList<>(tasks.size());
+        for(Task task : tasks){
+            lines.add(task.toString());
+        }
+
+        if (syncMode != SyncMode.EVERY_WRITE) {
+            synchronized (this) {
+                if (!closed) {
+                    boolean flushScheduled = pendingLines != null;
+                    pendingLines = lines;
+                    // The first save of a burst schedules the flush, later ones just replace the pending snapshot
+                    if (syncMode == SyncMode.INTERVAL && !flushScheduled) {
+                        flusher.schedule(this::flush, syncIntervalMillis, TimeUnit.MILLISECONDS);
+                    }
+                    return;
+                }
+            }
+        }
+        writeSnapshot(lines);
+    }
+
+    // Saves only the given added/updated tasks and removed task IDs by appending them to the journal
+    public void saveChanges(Collection<Task> changedTasks, Collection<Long> removedIds) {
+        if (changedTasks.isEmpty() && removedIds.isEmpty()) return;
+        // Writing a snapshot resets the journal, so a pending one has to reach the disk first
+        flush();
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (BufferedWriter writer = encode(buffer)) {
+            for (Task task : changedTasks) {
+                writer.write(UPSERT_RECORD + task.toString());
                 writer.newLine();
             }
+            for (long id : removedIds) {
+                writer.write(REMOVE_RECORD + Long.toString(id));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("Error encoding task changes: " + e.getMessage());
+            return;
         }
-        catch(IOException e){
-            System.err.println("Error saving tasks: " + e.getMessage());
+
+        synchronized (writeLock) {
+            try {
+                FileChannel channel = journalChannel();
+                ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+                while (bytes.hasRemaining()) channel.write(bytes);
+                journalRecords += changedTasks.size() + removedIds.size();
+                scheduleJournalSync(channel);
+                if (isClosed()) closeJournal(false);
+            } catch (IOException e) {
+                System.err.println("Error saving task changes: " + e.getMessage());
+            }
+        }
+    }
+
+    // Returns true once the journal has grown large enough that a full save should replace it
+    public boolean needsCompaction(int taskCount) {
+        synchronized (writeLock) {
+            return journalRecords > Math.max(MIN_COMPACTION_RECORDS, taskCount);
         }
     }
 
     // Add a new task to the CSV file
     public void addTasks(Task task) {
-        try(BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))){
-            writer.write(task.toString());
-            writer.newLine();
+        addTasks(List.of(task));
+    }
+
+    // Appends a batch of new tasks to the CSV file with a single write
+    public void addTasks(List<Task> tasks) {
+        try {
+            appendTasks(tasks);
         } catch (IOException e) {
             System.err.println("Error adding task to CSV file: " + e.getMessage());
         }
     }
 
+    // Appends a batch of new tasks to the CSV file with a single write, throwing if it fails.
+    // A failed batch is cut off again where possible, so either all of it is written or none of it
+    public void appendTasks(List<Task> tasks) throws IOException {
+        if (tasks.isEmpty()) return;
+        flush();
+        synchronized (writeLock) {
+            Path path = Paths.get(filePath);
+            long length = Files.exists(path) ? Files.size(path) : 0;
+            try (BufferedWriter writer = openWriter(true)) {
+                for (Task task : tasks) {
+                    writer.write(task.toString());
+                    writer.newLine();
+                }
+            } catch (IOException e) {
+                truncate(path, length);
+                throw e;
+            } finally {
+                rememberFileState();
+            }
+        }
+    }
+
+    // Cuts a file back to the given length after a failed append. Must hold writeLock
+    private static void truncate(Path path, long length) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            if (channel.size() > length) channel.truncate(length);
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("Error removing a partly appended batch from the CSV file: " + e.getMessage());
+        }
+    }
+
+    // Checks whether another program changed the CSV file since this handler last read or wrote it.
+    // Returns null if it did not
+    public ExternalChanges readExternalChanges() {
+        synchronized (writeLock) {
+            Path path = Paths.get(filePath);
+            long length;
+            long modified;
+            try {
+                length = Files.size(path);
+                modified = Files.getLastModifiedTime(path).toMillis();
+            } catch (IOException e) {
+                // The file is being replaced; the next event will see the new one
+                return null;
+            }
+            if (length == knownLength && modified == knownModified) return null;
+
+            if (length > knownLength && knownLength > 0 && tailMatches(path)) {
+                List<Task> appended = readTasksFrom(path, knownLength);
+                rememberFileState();
+                return new ExternalChanges(appended, true);
+            }
+            // A rewrite is authoritative. The journal and any pending save predate it, so they are dropped
+            // rather than replayed or flushed over it
+            synchronized (this) {
+                pendingLines = null;
+            }
+            closeJournal(false);
+            try {
+                Files.deleteIfExists(journalPath());
+            } catch (IOException e) {
+                System.err.println("Error removing task journal: " + e.getMessage());
+            }
+            journalRecords = 0;
+            return new ExternalChanges(new ArrayList<>(readStoredTasks().values()), false);
+        }
+    }
+
+    // Returns true if changes were saved to the journal or are waiting to be written since the last full save,
+    // i.e. other programs reading the CSV file do not see them yet
+    public boolean hasJournaledChanges() {
+        synchronized (writeLock) {
+            synchronized (this) {
+                if (pendingLines != null) return true;
+            }
+            return journalRecords > 0 || journalChannel != null;
+        }
+    }
+
+    // Returns true if the bytes before the remembered end of the file are still the ones this handler saw
+    private boolean tailMatches(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer tail = ByteBuffer.allocate(knownTail.length);
+            channel.position(knownLength - knownTail.length);
+            while (tail.hasRemaining() && channel.read(tail) >= 0) { }
+            return Arrays.equals(tail.array(), knownTail);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Reads the tasks stored from the given byte offset on. Malformed records are skipped
+    private List<Task> readTasksFrom(Path path, long offset) {
+        List<Task> tasks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.position(offset);
+            InputStream in = Channels.newInputStream(channel);
+            if (compressed) in = new GZIPInputStream(in, BUFFER_SIZE);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    tasks.add(Task.fromCSV(line));
+                } catch (RuntimeException e) {
+                    System.err.println("Skipping malformed task record: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading appended tasks: " + e.getMessage());
+        }
+        return tasks;
+    }
+
+    // Records the current size, modification time and trailing bytes of the CSV file. Must hold writeLock
+    private void rememberFileState() {
+        Path path = Paths.get(filePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            ByteBuffer tail = ByteBuffer.allocate((int) Math.min(length, TAIL_FINGERPRINT_BYTES));
+            channel.position(length - tail.capacity());
+            while (tail.hasRemaining() && channel.read(tail) >= 0) { }
+            knownLength = length;
+            knownModified = Files.getLastModifiedTime(path).toMillis();
+            knownTail = tail.array();
+        } catch (IOException e) {
+            knownLength = 0;
+            knownModified = 0;
+            knownTail = new byte[0];
+        }
+    }
+
     // Remove a task by its ID on the CSV file
     public void removeTasks(long id) {
-        List<Task> tasks = loadTasks();
-        List<Task> updatedTasks = tasks.stream()
-                .filter(task -> task.getId() != id)
-                .toList();
-        saveTasks(updatedTasks);
+        saveChanges(List.of(), List.of(id));
+    }
+
+    // Writes any pending save to disk
+    public void flush() {
+        // Taking the snapshot under the write lock keeps concurrent flushes from writing an older one last
+        synchronized (writeLock) {
+            List<String> lines;
+            synchronized (this) {
+                lines = pendingLines;
+                pendingLines = null;
+            }
+            if (lines != null) writeSnapshot(lines);
+        }
+    }
+
+    // Writes any pending save and stops the background flusher. Saves made after this are written immediately
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        if (flusher != null) flusher.shutdown();
+        flush();
+        synchronized (writeLock) {
+            closeJournal(true);
+        }
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    // Writes the lines to a temporary file, syncs it and atomically renames it over the live file
+    private void writeSnapshot(List<String> lines) {
+        synchronized (writeLock) {
+            Path target = Paths.get(filePath).toAbsolutePath();
+            Path temp = tempPath();
+            try {
+                FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                try (BufferedWriter writer = encode(syncingStream(channel))) {
+                    for (String line : lines) {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                }
+                moveIntoPlace(temp, target);
+                syncDirectory(target.getParent());
+                rememberFileState();
+                // The snapshot now holds every journaled change
+                closeJournal(false);
+                Files.deleteIfExists(journalPath());
+                journalRecords = 0;
+            } catch (IOException e) {
+                System.err.println("Error saving tasks: " + e.getMessage());
+            }
+        }
+    }
+
+    // Renames the temporary file over the live file, atomically where the file system supports it
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Syncs the directory so the rename itself survives a crash. Not supported on every platform
+    private static void syncDirectory(Path dir) {
+        if (dir == null) return;
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened for syncing on some platforms (e.g. Windows)
+        }
+    }
+
+    // Opens the journal for appending if it is not open yet. Must hold writeLock
+    private FileChannel journalChannel() throws IOException {
+        if (journalChannel == null) {
+            journalChannel = FileChannel.open(journalPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return journalChannel;
+    }
+
+    // Syncs the journal now or later depending on the sync mode. Must hold writeLock
+    private void scheduleJournalSync(FileChannel channel) throws IOException {
+        if (syncMode == SyncMode.EVERY_WRITE || isClosed()) {
+            channel.force(false);
+        } else if (syncMode == SyncMode.INTERVAL && !journalSyncScheduled) {
+            // Every append until the sync runs is group-committed by that one sync
+            journalSyncScheduled = true;
+            flusher.schedule(this::syncJournal, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Forces the appended journal records to disk
+    private void syncJournal() {
+        synchronized (writeLock) {
+            journalSyncScheduled = false;
+            if (journalChannel == null) return;
+            try {
+                journalChannel.force(false);
+            } catch (IOException e) {
+                System.err.println("Error syncing task journal: " + e.getMessage());
+            }
+        }
+    }
+
+    // Closes the journal channel, optionally syncing it first. Must hold writeLock
+    private void closeJournal(boolean sync) {
+        if (journalChannel == null) return;
+        try {
+            if (sync) journalChannel.force(false);
+            journalChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing task journal: " + e.getMessage());
+        }
+        journalChannel = null;
+    }
+
+    // Path of the journal file next to the storage file
+    private Path journalPath() {
+        return Paths.get(filePath + JOURNAL_SUFFIX).toAbsolutePath();
+    }
+
+    // Path of the temporary file next to the storage file
+    private Path tempPath() {
+        return Paths.get(filePath + TEMP_SUFFIX).toAbsolutePath();
+    }
+
+    // Opens a reader on a storage file, decompressing on the fly if needed
+    private BufferedReader openReader(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        if (compressed) in = new GZIPInputStream(in, BUFFER_SIZE);
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    // Opens a writer on the storage file, compressing on the fly if needed. Syncs on close in EVERY_WRITE mode
+    private BufferedWriter openWriter(boolean append) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream out = (syncMode == SyncMode.EVERY_WRITE) ? syncingStream(channel) : Channels.newOutputStream(channel);
+        return encode(out);
+    }
+
+    // Wraps a raw output stream in the file's codec
+    private BufferedWriter encode(OutputStream out) throws IOException {
+        if (compressed) out = new GZIPOutputStream(out, BUFFER_SIZE);
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    // Output stream over a file channel which forces its data to disk before closing
+    private static OutputStream syncingStream(FileChannel channel) {
+        return new FilterOutputStream(Channels.newOutputStream(channel)) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    flush();
+                    channel.force(true);
+                } finally {
+                    super.close();
+                }
+            }
+        };
+    }
+
+    // Single daemon thread which writes batched saves in INTERVAL mode
+    private static ScheduledExecutorService createFlusher() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "csv-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 }
@@ -0,0 +1,20 @@
+package org.todolistapp.storage;
+
+/**
+ * SyncMode.java
+
+ * Defines how eagerly CsvHandler makes saved tasks durable on disk.
+ * Every save is written to a temporary file, forced to disk and renamed
+ * over the live file, so the live file is never left half-written.
+ * The mode only decides when that happens.
+
+ * EVERY_WRITE - each save is written and synced before returning
+ * INTERVAL    - saves within the sync interval are group-committed into one write
+ * ON_CLOSE    - only the latest save is written, on flush or close
+ */
+
+public enum SyncMode {
+    EVERY_WRITE,
+    INTERVAL,
+    ON_CLOSE;
+}
@@ -0,0 +1,320 @@
+package org.todolistapp.storage;
+
+import org.todolistapp.models.Task;
+import org.todolistapp.models.TaskCategory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+/**
+ * TaskArchive.java
+
+ * Cold storage for completed tasks, kept outside the live task list so the
+ * working set stays small while the full history remains searchable.
+
+ * Layout (inside its own directory):
+ *  - segment-NNNNNN.csv.gz : append-only, gzip compressed records
+ *                            "sequence,completedAt,<task csv>"; each append
+ *                            adds one gzip member
+ *  - manifest.csv          : one "segment,count,length" line per append, so
+ *                            segment sizes are known without opening the
+ *                            segments; length is the segment's size in bytes
+ *                            after the append
+ *  - reopened.csv          : sequence numbers of archived tasks that were
+ *                            brought back to the live list (e.g. by undo)
+
+ * Responsibilities:
+ *  - Append completed tasks, starting a new segment once the current one is full.
+ *  - Answer paged queries, newest completion first, optionally filtered by
+ *    category and description text.
+
+ * Notes:
+ *  - Nothing is read until the first query or append. A query only opens
+ *    the segments it needs: unfiltered pages skip whole segments using the
+ *    manifest counts, and at most one segment is decoded in memory at a time.
+ *  - Each archived record gets a unique, increasing sequence number, which
+ *    is how a record is marked as reopened without rewriting any segment.
+ *  - The manifest line commits an append: it is written after the segment,
+ *    and sequence numbers and counts only advance once both writes succeed.
+ *    On load, segment bytes past the last committed length (left by a crash
+ *    or failure between the two writes) and a torn last manifest line are
+ *    cut off, so their sequence numbers can safely be handed out again.
+ */
+
+public class TaskArchive {
+    public static final int DEFAULT_SEGMENT_RECORDS = 10_000;
+    private static final String MANIFEST_FILE = "manifest.csv";
+    private static final String REOPENED_FILE = "reopened.csv";
+
+    // A task as it was archived
+    public record Entry(long sequence, long completedAt, Task task) { }
+
+    // A segment file and the range of sequence numbers it holds
+    private static final class Segment {
+        final int number;
+        final long firstSequence;
+        int count;
+        // Size of the segment file after the last committed append, -1 if the manifest does not say
+        long length = -1;
+
+        Segment(int number, long firstSequence) {
+            this.number = number;
+            this.firstSequence = firstSequence;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentRecords;
+    // Loaded on first use
+    private List<Segment> segments;
+    private NavigableSet<Long> reopened;
+    private long nextSequence;
+    // Most recently decoded segment, oldest record first
+    private int cachedSegment = -1;
+    private List<Entry> cachedEntries;
+
+    // Constructor
+    public TaskArchive(String directory) {
+        this(directory, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    // Constructor with the number of records per segment
+    public TaskArchive(String directory, int segmentRecords) {
+        this.directory = Paths.get(directory);
+        this.segmentRecords = Math.max(1, segmentRecords);
+    }
+
+    // Archives tasks completed at the given time. Returns their sequence numbers, in the same order
+    public synchronized List<Long> append(List<Task> tasks, long completedAt) {
+        ensureLoaded();
+        List<Long> sequences = new ArrayList<>(tasks.size());
+        int start = 0;
+        try {
+            Files.createDirectories(directory);
+            while (start < tasks.size()) {
+                Segment segment = activeSegment();
+                int end = Math.min(tasks.size(), start + segmentRecords - segment.count);
+                List<Long> chunk = new ArrayList<>(end - start);
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                try (BufferedWriter writer = gzipWriter(buffer)) {
+                    for (Task task : tasks.subList(start, end)) {
+                        long sequence = nextSequence + chunk.size();
+                        chunk.add(sequence);
+                        writer.write(sequence + "," + completedAt + "," + task);
+                        writer.newLine();
+                    }
+                }
+                Path segmentFile = segmentPath(segment.number);
+                if (cachedSegment == segment.number) cachedSegment = -1;
+                long length = appendDurably(segmentFile, buffer.toByteArray());
+                appendDurably(directory.resolve(MANIFEST_FILE), (segment.number + "," + chunk.size() + "," + length
+                        + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+                // Committed: only now are the sequence numbers used up
+                nextSequence += chunk.size();
+                segment.count += chunk.size();
+                segment.length = length;
+                sequences.addAll(chunk);
+                start = end;
+            }
+        } catch (IOException e) {
+            // The tasks archived by earlier chunks stay archived; the caller learns which from the returned list
+            System.err.println("Error archiving tasks: " + e.getMessage());
+            dropUncommitted();
+        }
+        return sequences;
+    }
+
+    // Forgets a segment that was started but never committed, and cuts off what a failed append left behind
+    private void dropUncommitted() {
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.count == 0) segments.remove(segments.size() - 1);
+        try {
+            truncateUncommitted();
+        } catch (IOException e) {
+            System.err.println("Error repairing task archive: " + e.getMessage());
+        }
+    }
+
+    // Cuts the last segment back to its committed length and removes segment files the manifest does not list
+    private void truncateUncommitted() throws IOException {
+        int lastNumber = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).number;
+        Files.deleteIfExists(segmentPath(lastNumber + 1));
+        if (segments.isEmpty()) return;
+        Segment last = segments.get(segments.size() - 1);
+        Path path = segmentPath(last.number);
+        if (last.length < 0 || !Files.exists(path) || Files.size(path) <= last.length) return;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(last.length);
+            channel.force(false);
+        }
+        if (cachedSegment == last.number) cachedSegment = -1;
+    }
+
+    // Marks archived records as reopened, so queries no longer return them
+    public synchronized void reopen(Collection<Long> sequences) {
+        if (sequences.isEmpty()) return;
+        ensureLoaded();
+        StringBuilder lines = new StringBuilder();
+        for (long sequence : sequences) {
+            lines.append(sequence).append(System.lineSeparator());
+        }
+        try {
+            Files.createDirectories(directory);
+            appendDurably(directory.resolve(REOPENED_FILE), lines.toString().getBytes(StandardCharsets.UTF_8));
+            reopened.addAll(sequences);
+        } catch (IOException e) {
+            System.err.println("Error reopening archived tasks: " + e.getMessage());
+        }
+    }
+
+    // Returns the number of archived tasks that were not reopened
+    public synchronized long size() {
+        ensureLoaded();
+        return nextSequence - firstSequence() - reopened.size();
+    }
+
+    // Returns up to limit archived tasks, newest completion first, after skipping offset matches.
+    // A null category or blank text matches everything
+    public synchronized List<Entry> query(TaskCategory category, String text, int offset, int limit) {
+        ensureLoaded();
+        String needle = (text == null || text.isBlank()) ? null : text.toLowerCase();
+        boolean filtered = category != null || needle != null;
+        List<Entry> page = new ArrayList<>();
+        int toSkip = Math.max(0, offset);
+
+        for (int i = segments.size() - 1; i >= 0 && page.size() < limit; i--) {
+            Segment segment = segments.get(i);
+            if (!filtered) {
+                // Whole segments before the requested page are skipped without being read
+                long live = segment.count - reopened.subSet(segment.firstSequence, true,
+                        segment.firstSequence + segment.count, false).size();
+                if (toSkip >= live) {
+                    toSkip -= (int) live;
+                    continue;
+                }
+            }
+            List<Entry> entries = readSegment(segment.number);
+            for (int j = entries.size() - 1; j >= 0 && page.size() < limit; j--) {
+                Entry entry = entries.get(j);
+                if (reopened.contains(entry.sequence())) continue;
+                if (category != null && entry.task().getCategory() != category) continue;
+                if (needle != null && (entry.task().getDescription() == null
+                        || !entry.task().getDescription().toLowerCase().contains(needle))) continue;
+                if (toSkip > 0) {
+                    toSkip--;
+                    continue;
+                }
+                page.add(entry);
+            }
+        }
+        return page;
+    }
+
+    // Reads the manifest and reopened list the first time the archive is used
+    private void ensureLoaded() {
+        if (segments != null) return;
+        segments = new ArrayList<>();
+        reopened = new TreeSet<>();
+        nextSequence = 0;
+        try {
+            Path manifest = directory.resolve(MANIFEST_FILE);
+            if (Files.exists(manifest)) {
+                String content = Files.readString(manifest, StandardCharsets.UTF_8);
+                // Only lines that end in a newline were written completely; a torn one is cut off
+                int complete = content.lastIndexOf('\n') + 1;
+                if (complete < content.length()) {
+                    try (FileChannel channel = FileChannel.open(manifest, StandardOpenOption.WRITE)) {
+                        channel.truncate(content.substring(0, complete).getBytes(StandardCharsets.UTF_8).length);
+                        channel.force(false);
+                    }
+                }
+                for (String line : content.substring(0, complete).split("\\R")) {
+                    if (line.isBlank()) continue;
+                    String[] fields = line.split(",");
+                    int number = Integer.parseInt(fields[0]);
+                    int count = Integer.parseInt(fields[1]);
+                    if (segments.isEmpty() || segments.get(segments.size() - 1).number != number) {
+                        segments.add(new Segment(number, nextSequence));
+                    }
+                    Segment segment = segments.get(segments.size() - 1);
+                    segment.count += count;
+                    segment.length = fields.length > 2 ? Long.parseLong(fields[2]) : -1;
+                    nextSequence += count;
+                }
+            }
+            truncateUncommitted();
+            Path reopenedFile = directory.resolve(REOPENED_FILE);
+            if (Files.exists(reopenedFile)) {
+                for (String line : Files.readAllLines(reopenedFile, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) reopened.add(Long.parseLong(line.trim()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading task archive: " + e.getMessage());
+        }
+    }
+
+    // Returns the segment new records go to, starting a new one if the last is full
+    private Segment activeSegment() {
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last == null || last.count >= segmentRecords) {
+            last = new Segment(last == null ? 1 : last.number + 1, nextSequence);
+            segments.add(last);
+        }
+        return last;
+    }
+
+    // Decodes all records of a segment, oldest first. The last decoded segment is cached
+    private List<Entry> readSegment(int number) {
+        if (number == cachedSegment) return cachedEntries;
+        List<Entry> entries = new ArrayList<>();
+        Path path = segmentPath(number);
+        if (Files.exists(path)) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    String[] fields = line.split(",", 3);
+                    entries.add(new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Task.fromCSV(fields[2])));
+                }
+            } catch (IOException | RuntimeException e) {
+                // A crash while appending can leave a torn last member, everything before it is kept
+                System.err.println("Stopped reading archive segment " + number + ": " + e.getMessage());
+            }
+        }
+        cachedSegment = number;
+        cachedEntries = entries;
+        return entries;
+    }
+
+    // First sequence number still covered by the manifest
+    private long firstSequence() {
+        return segments.isEmpty() ? nextSequence : segments.get(0).firstSequence;
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("segment-%06d.csv.gz", number));
+    }
+
+    // Wraps an output stream in a gzip member holding UTF-8 text
+    private static BufferedWriter gzipWriter(OutputStream out) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(out), StandardCharsets.UTF_8));
+    }
+
+    // Appends bytes to a file and syncs them to disk. Returns the new size of the file
+    private static long appendDurably(Path path, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(false);
+            return channel.size();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.todolistapp.storage;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+/**
+ * TaskFileWatcher.java
+
+ * Watches a task file for modifications made by other programs
+ * (for example sync scripts) using the JDK WatchService.
+
+ * Responsibilities:
+ *  - Watch the directory of the task file on a single daemon thread.
+ *  - Ignore events for every other file in that directory.
+ *  - Collapse a burst of events into one notification.
+
+ * Notes:
+ *  - The watcher only reports that the file was touched. Working out what
+ *    changed (and whether the write was our own) is left to
+ *    CsvHandler.readExternalChanges.
+ */
+
+public class TaskFileWatcher implements AutoCloseable {
+    // Events arriving within this window after the first one are handled together
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    private final Path file;
+    private final Runnable onChange;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    // Starts watching the given file. onChange runs on the watcher thread
+    public TaskFileWatcher(String filePath, Runnable onChange) throws IOException {
+        this.file = Paths.get(filePath).toAbsolutePath();
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        this.thread = new Thread(this::watchLoop, "task-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Waits for events on the directory and notifies when the task file is among them
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+                // Writers often touch the file several times in a row, so wait for them to settle
+                WatchKey next;
+                while ((next = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(next);
+                }
+                if (changed) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Error reloading task file: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watcher was closed
+        }
+    }
+
+    // Consumes the events of a key. Returns true if one of them concerns the task file
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    // Stops watching
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Error closing task file watcher: " + e.getMessage());
+        }
+        thread.interrupt();
+    }
+}
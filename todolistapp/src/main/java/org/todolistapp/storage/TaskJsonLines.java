@@ -0,0 +1,185 @@
+package org.todolistapp.storage;
+
+import org.todolistapp.models.Task;
+import org.todolistapp.models.TaskCategory;
+import org.todolistapp.models.TaskPriority;
+
+import java.util.HashMap;
+import java.util.Map;
+/**
+ * TaskJsonLines.java
+
+ * Converts tasks to and from JSON Lines, one flat JSON object per line:
+ *   {"id":3,"category":"SCHOOL","description":"Essay","dueAt":1700000000000,"priority":"HIGH"}
+
+ * Responsibilities:
+ *  - Write a task as a single JSON object.
+ *  - Parse one line back into a task, rejecting malformed lines with a
+ *    message that says what is wrong.
+
+ * Notes:
+ *  - Only the flat objects written here are understood (strings, numbers,
+ *    true/false/null); there is no JSON library in the build.
+ *  - "category" and "description" are required. "id" defaults to 0,
+ *    "dueAt" to no due date and "priority" to NONE. Unknown keys are ignored.
+ */
+
+public final class TaskJsonLines {
+
+    private TaskJsonLines() { }
+
+    // Converts a task to one line of JSON
+    public static String toJson(Task task) {
+        StringBuilder json = new StringBuilder(64 + task.getDescription().length());
+        json.append("{\"id\":").append(task.getId());
+        json.append(",\"category\":\"").append(task.getCategory().name()).append('"');
+        json.append(",\"description\":");
+        appendString(json, task.getDescription());
+        if (task.hasDueDate()) json.append(",\"dueAt\":").append(task.getDueAt());
+        if (task.getPriority() != TaskPriority.NONE) {
+            json.append(",\"priority\":\"").append(task.getPriority().name()).append('"');
+        }
+        return json.append('}').toString();
+    }
+
+    // Parses one line of JSON into a task. Throws IllegalArgumentException if it is malformed
+    public static Task fromJson(String line) {
+        Map<String, String> fields = new Parser(line).parseObject();
+
+        String category = fields.get("category");
+        String description = fields.get("description");
+        if (category == null) throw new IllegalArgumentException("Missing \"category\"");
+        if (description == null) throw new IllegalArgumentException("Missing \"description\"");
+        try {
+            long id = fields.containsKey("id") ? Long.parseLong(fields.get("id")) : 0;
+            long dueAt = fields.get("dueAt") != null ? Long.parseLong(fields.get("dueAt")) : Task.NO_DUE_DATE;
+            TaskPriority priority = fields.get("priority") != null
+                    ? TaskPriority.valueOf(fields.get("priority")) : TaskPriority.NONE;
+            return new Task(id, TaskCategory.valueOf(category), description, dueAt, priority);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and unknown enum constants both end up here
+            throw new IllegalArgumentException("Invalid value: " + e.getMessage(), e);
+        }
+    }
+
+    // Appends a JSON string literal, escaping quotes, backslashes and control characters
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    // Minimal parser for one flat JSON object. Values are returned as text (null for JSON null)
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> parseObject() {
+            Map<String, String> fields = new HashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    skipWhitespace();
+                    String key = parseString();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    fields.put(key, parseValue());
+                    skipWhitespace();
+                    char c = next();
+                    if (c == '}') break;
+                    if (c != ',') throw error("Expected ',' or '}'");
+                }
+            }
+            skipWhitespace();
+            if (pos < text.length()) throw error("Unexpected text after the object");
+            return fields;
+        }
+
+        private String parseValue() {
+            char c = peek();
+            if (c == '"') return parseString();
+            if (c == '{' || c == '[') throw error("Nested values are not supported");
+            int start = pos;
+            while (pos < text.length() && ",} \t".indexOf(text.charAt(pos)) < 0) pos++;
+            String literal = text.substring(start, pos);
+            if (literal.isEmpty()) throw error("Missing value");
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) throw error("Truncated \\u escape");
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid \\u escape");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw error("Invalid escape \\" + escaped);
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        private char peek() {
+            if (pos >= text.length()) throw error("Unexpected end of line");
+            return text.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) throw error("Expected '" + expected + "'");
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (pos + 1));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.todolistapp.ui;
+
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import org.todolistapp.models.Task;
+import org.todolistapp.models.TaskCategory;
+import org.todolistapp.models.TaskPriority;
+import org.todolistapp.service.TaskHandler;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+/**
+ * TaskDialog.java
+
+ * The pop-up window used to add a new task or edit an existing one.
+
+ * Responsibilities:
+ *  - Build the window, its scene and its controls once, and reuse them for
+ *    every add and edit.
+ *  - Rebind the controls to the task being edited (or to defaults for a new
+ *    task) each time it opens.
+ *  - Save the result through TaskHandler and tell the main UI to refresh.
+ *  - Measure how long it takes from the open request until the window is shown.
+
+ * Notes:
+ *  - Creating a Stage, a Scene and the combo boxes is the expensive part of
+ *    opening a pop-up; afterwards an open only sets a handful of values.
+ *  - prewarm() applies CSS and lays out the scene ahead of time, so even the
+ *    first open does not pay for skin creation. ToDoAppUI calls it once the
+ *    main window is up.
+ */
+
+public class TaskDialog {
+
+    private final TaskHandler taskHandler;
+    private final Runnable onSaved;
+    private final Stage stage;
+    private final ComboBox<TaskCategory> categoryBox = new ComboBox<>();
+    private final TextField descriptionField = new TextField();
+    private final DatePicker duePicker = new DatePicker();
+    private final ComboBox<TaskPriority> priorityBox = new ComboBox<>();
+    private final Button confirmButton = new Button();
+    // Task being edited, null when adding a new one
+    private Task editedTask;
+    private boolean prewarmed;
+    // Set when an open is requested, read once the window is shown
+    private long openRequestedAt;
+    private long lastOpenLatencyNanos = -1;
+
+    // Builds the dialog. onSaved runs after a task was added or saved
+    public TaskDialog(Stage owner, TaskHandler taskHandler, Runnable onSaved) {
+        this.taskHandler = taskHandler;
+        this.onSaved = onSaved;
+
+        stage = new Stage();
+        stage.initModality(Modality.APPLICATION_MODAL);
+        stage.initOwner(owner);
+
+        VBox layout = new VBox(10);
+        layout.setPadding(new Insets(10));
+
+        categoryBox.getItems().addAll(TaskCategory.values());
+        descriptionField.setPromptText("Task description");
+        duePicker.setPromptText("No due date");
+        priorityBox.getItems().addAll(TaskPriority.values());
+        confirmButton.setDefaultButton(true);
+        confirmButton.setOnAction(e -> confirm());
+
+        layout.getChildren().addAll(new Label("Category:"), categoryBox,
+                new Label("Description:"), descriptionField,
+                new Label("Due date:"), duePicker,
+                new Label("Priority:"), priorityBox, confirmButton);
+
+        stage.setScene(new Scene(layout, 300, 320));
+        stage.setOnShown(e -> lastOpenLatencyNanos = System.nanoTime() - openRequestedAt);
+        // Drop the reference so a closed dialog does not keep the task alive
+        stage.setOnHidden(e -> editedTask = null);
+    }
+
+    // Applies CSS and lays out the controls ahead of the first open
+    public void prewarm() {
+        if (prewarmed) return;
+        prewarmed = true;
+        stage.getScene().getRoot().applyCss();
+        stage.getScene().getRoot().layout();
+    }
+
+    // Opens the dialog for a new task and waits until it is closed
+    public void openForAdd() {
+        openRequestedAt = System.nanoTime();
+        editedTask = null;
+        stage.setTitle("Add Task");
+        confirmButton.setText("Add");
+        categoryBox.setValue(TaskCategory.UNCATEGORIZED);
+        descriptionField.clear();
+        duePicker.setValue(null);
+        priorityBox.setValue(TaskPriority.NONE);
+        show();
+    }
+
+    // Opens the dialog for an existing task and waits until it is closed
+    public void openForEdit(Task task) {
+        openRequestedAt = System.nanoTime();
+        editedTask = task;
+        stage.setTitle("Edit Task");
+        confirmButton.setText("Save");
+        categoryBox.setValue(task.getCategory());
+        descriptionField.setText(task.getDescription());
+        duePicker.setValue(toDueDate(task));
+        priorityBox.setValue(task.getPriority());
+        show();
+    }
+
+    // Closes the dialog without saving
+    public void close() {
+        stage.close();
+    }
+
+    // Nanoseconds between the last open request and the window being shown, -1 before the first open
+    public long getLastOpenLatencyNanos() {
+        return lastOpenLatencyNanos;
+    }
+
+    private void show() {
+        prewarm();
+        descriptionField.requestFocus();
+        stage.showAndWait();
+    }
+
+    // Adds or saves the task with the values in the controls
+    private void confirm() {
+        if (editedTask == null) {
+            taskHandler.addTask(categoryBox.getValue(), descriptionField.getText(),
+                    toDueAt(duePicker.getValue()), priorityBox.getValue());
+        } else {
+            taskHandler.updateTask(editedTask.getId(), categoryBox.getValue(), descriptionField.getText(),
+                    toDueAt(duePicker.getValue()), priorityBox.getValue());
+        }
+        stage.close();
+        onSaved.run();
+    }
+
+    // Converts a picked date to a due time: the task is due by the end of that day
+    private static long toDueAt(LocalDate date) {
+        if (date == null) return Task.NO_DUE_DATE;
+        return date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Converts a task's due time back to the date shown in the date picker
+    private static LocalDate toDueDate(Task task) {
+        if (!task.hasDueDate()) return null;
+        return Instant.ofEpochMilli(task.getDueAt() - 1).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
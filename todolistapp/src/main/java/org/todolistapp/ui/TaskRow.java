@@ -2,10 +2,15 @@ package org.todolistapp.ui;
 
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.control.Tooltip;
 import javafx.scene.layout.HBox;
 import org.todolistapp.models.Task;
 import org.todolistapp.models.TaskCategory;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 /**
  * TaskRow.java
 
@@ -15,6 +20,7 @@ import org.todolistapp.models.TaskCategory;
  * Responsibilities:
  *  - Render an individual task with its corresponding category styling.
  *  - Provide a clickable area to edit/view the task.
+ *  - Show the due date as a tooltip, the priority as "!" marks, and highlight overdue tasks.
  *  - Provide a "done" button that notifies the parent UI when the task is completed.
 
  * This class communicates with the main UI through the TaskRowListener interface,
@@ -24,6 +30,10 @@ import org.todolistapp.models.TaskCategory;
 
 public class TaskRow extends HBox {
 
+    // Formats the day a task is due on
+    private static final DateTimeFormatter DUE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault());
+
     private Task task;
     private Button taskButton;
     private Button doneButton;
@@ -46,9 +56,21 @@ public class TaskRow extends HBox {
             getStyleClass().add("category-" + task.getCategory().name().toLowerCase());
         }
 
+        // --- Highlight tasks past their due date ---
+        if (task.isOverdue(System.currentTimeMillis())) {
+            getStyleClass().add("overdue");
+        }
+
+        // Priority marker: one "!" per level above NONE
+        Label priorityLabel = new Label("!".repeat(task.getPriority().ordinal()));
+        priorityLabel.getStyleClass().add("priority-label");
+
         // Task Button
         taskButton = new Button(task.getDescription());
         taskButton.getStyleClass().add("task-button");
+        if (task.hasDueDate()) {
+            taskButton.setTooltip(new Tooltip("Due " + DUE_FORMAT.format(Instant.ofEpochMilli(task.getDueAt() - 1))));
+        }
         taskButton.setMaxWidth(Double.MAX_VALUE);
         setHgrow(taskButton, javafx.scene.layout.Priority.ALWAYS);
         taskButton.setOnAction(e -> listener.onTaskClicked(task));
@@ -60,6 +82,9 @@ public class TaskRow extends HBox {
         doneButton.setOnAction(e -> listener.onTaskCompleted(task));
 
         // Add components
-        getChildren().addAll(taskButton, doneButton);
+        getChildren().addAll(priorityLabel, taskButton, doneButton);
     }
+
+    // Returns the task shown by this row
+    public Task getTask() { return task; }
 }
@@ -1,16 +1,28 @@
 package org.todolistapp.ui;
 
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.*;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import org.todolistapp.models.Task;
 import org.todolistapp.models.TaskCategory;
 import org.todolistapp.service.TaskHandler;
+import org.todolistapp.service.TaskSortOrder;
+import org.todolistapp.storage.TaskArchive;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 /**
  * ToDoAppUI.java
 
@@ -19,14 +31,19 @@ import java.util.List;
 
  * Features:
  *  - Top-level layout and scene configuration for JavaFX.
- *  - A scrollable category bar that filters tasks by category.
- *  - A scrollable list of TaskRow components representing each task.
- *  - Pop-up windows for adding and editing tasks.
+ *  - A scrollable category bar that filters tasks by category and shows how many tasks each one holds.
+ *  - A sort selector (newest, priority, due date, category).
+ *  - A scrollable list of TaskRow components representing each task, loaded one page at a time.
+ *  - A pop-up window for adding and editing tasks, built once and reused (see TaskDialog).
+ *  - Undo/Redo buttons (also Ctrl+Z / Ctrl+Y) for every change to the task list.
+ *  - An OVERDUE view and a reminder pop-up when a task's due date is reached.
+ *  - A History pop-up that pages through and searches completed (archived) tasks.
 
  * Responsibilities:
  *  - Initialize UI components and apply CSS styling.
  *  - Load and refresh tasks from the TaskHandler service.
  *  - Handle interactions such as adding, editing, completing, or filtering tasks.
+ *  - Patch only the affected rows when other programs change the task file.
 
  * This class serves as the main visual layer and interacts with the underlying
  * task management logic through TaskHandler.
@@ -35,16 +52,38 @@ import java.util.List;
 
 public class ToDoAppUI {
 
+    // Number of rows loaded at once; "Show more" loads the next page
+    private static final int PAGE_SIZE = 100;
+    // Number of completed tasks shown per page in the History pop-up
+    private static final int HISTORY_PAGE_SIZE = 50;
+    private static final DateTimeFormatter COMPLETED_FORMAT = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT);
+
     private final TaskHandler taskHandler;
     private VBox taskListContainer;
     private HBox categoryBar;
+    private Button showMoreButton;
+    private Button undoButton;
+    private Button redoButton;
+    private Button allButton;
+    // Category buttons, by category, so their counts can be updated
+    private final Map<TaskCategory, Button> categoryButtons = new EnumMap<>(TaskCategory.class);
+    // Add/Edit pop-up, created on first use or pre-warmed after startup
+    private TaskDialog taskDialog;
+    private Stage primaryStage;
     private TaskCategory selectedCategory = null; // null = ALL
+    private boolean showOverdue = false;
+    private TaskSortOrder sortOrder = TaskSortOrder.NEWEST;
+    // Rows currently shown, by task ID
+    private final Map<Long, TaskRow> rowsById = new HashMap<>();
+    // Sort key of the last task shown, where the next page starts (null = first page)
+    private Task pageCursor;
 
     public ToDoAppUI(TaskHandler taskHandler) {
         this.taskHandler = taskHandler;
     }
 
     public void start(Stage primaryStage) {
+        this.primaryStage = primaryStage;
         primaryStage.setTitle("To Do List");
 
         // Root layout
@@ -66,50 +105,113 @@ public class ToDoAppUI {
         categoryScroll.setVbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
         categoryScroll.setFitToHeight(true);
 
+        // Sort selection
+        ComboBox<TaskSortOrder> sortBox = new ComboBox<>();
+        sortBox.getItems().addAll(TaskSortOrder.values());
+        sortBox.setValue(sortOrder);
+        sortBox.setOnAction(e -> {
+            sortOrder = sortBox.getValue();
+            refreshTaskList();
+        });
+        HBox sortBar = new HBox(10, new Label("Sort by:"), sortBox);
+        sortBar.setPadding(new Insets(0, 10, 0, 10));
+        sortBar.setAlignment(Pos.CENTER_LEFT);
+
         // Task list
         taskListContainer = new VBox(5);
         taskListContainer.setPadding(new Insets(10));
-        ScrollPane taskScroll = new ScrollPane(taskListContainer);
+        showMoreButton = new Button("Show more");
+        showMoreButton.setOnAction(e -> loadNextPage());
+        VBox taskListPane = new VBox(5, taskListContainer, showMoreButton);
+        taskListPane.setAlignment(Pos.TOP_CENTER);
+        ScrollPane taskScroll = new ScrollPane(taskListPane);
         taskScroll.setFitToWidth(true);
 
-        // Center container combining category bar and task list
+        // Center container combining category bar, sort bar and task list
         VBox centerContainer = new VBox(10);
-        centerContainer.getChildren().addAll(categoryScroll, taskScroll);
+        centerContainer.getChildren().addAll(categoryScroll, sortBar, taskScroll);
         root.setCenter(centerContainer);
 
+        // Undo/Redo buttons
+        undoButton = new Button("Undo");
+        undoButton.getStyleClass().add("undo-button");
+        undoButton.setOnAction(e -> undo());
+        redoButton = new Button("Redo");
+        redoButton.getStyleClass().add("undo-button");
+        redoButton.setOnAction(e -> redo());
+
         // Add Task button
         Button addTaskButton = new Button("Add Task");
         addTaskButton.getStyleClass().add("add-task-button");
-        addTaskButton.setOnAction(e -> openAddTaskPopup(primaryStage));
-        StackPane addButtonPane = new StackPane(addTaskButton);
-        addButtonPane.setPadding(new Insets(10));
-        StackPane.setAlignment(addTaskButton, Pos.BOTTOM_RIGHT);
-        root.setBottom(addButtonPane);
+        addTaskButton.setOnAction(e -> taskDialog().openForAdd());
+
+        // History button
+        Button historyButton = new Button("History");
+        historyButton.getStyleClass().add("undo-button");
+        historyButton.setOnAction(e -> openHistoryPopup(primaryStage));
+
+        // Bottom bar: undo/redo and history on the left, Add Task on the right
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox bottomBar = new HBox(10, undoButton, redoButton, historyButton, spacer, addTaskButton);
+        bottomBar.setPadding(new Insets(10));
+        bottomBar.setAlignment(Pos.CENTER_LEFT);
+        root.setBottom(bottomBar);
 
         // Scene
         Scene scene = new Scene(root, 600, 800);
         scene.getStylesheets().add(getClass().getResource("/style.css").toExternalForm());
+        scene.getAccelerators().put(KeyCombination.keyCombination("Shortcut+Z"), this::undo);
+        scene.getAccelerators().put(KeyCombination.keyCombination("Shortcut+Y"), this::redo);
+        scene.getAccelerators().put(KeyCombination.keyCombination("Shortcut+Shift+Z"), this::redo);
         primaryStage.setScene(scene);
 
         // Load categories and tasks
         loadCategoryButtons();
         refreshTaskList();
 
+        // Tasks changed by other programs arrive on the file watcher thread
+        taskHandler.addChangeListener((changedTasks, removedIds) ->
+                Platform.runLater(() -> applyExternalChanges(changedTasks, removedIds)));
+        // Reminders arrive on the scheduler thread
+        taskHandler.startReminders(task -> Platform.runLater(() -> showReminder(task)));
+
         primaryStage.show();
+        // Build the Add/Edit pop-up once the window is up, so the first click does not pay for it
+        Platform.runLater(() -> taskDialog().prewarm());
+    }
+
+    // Nanoseconds the Add/Edit pop-up last took from click to visible, -1 if it was never opened
+    public long getLastDialogOpenLatencyNanos() {
+        return taskDialog == null ? -1 : taskDialog.getLastOpenLatencyNanos();
+    }
+
+    // Returns the Add/Edit pop-up, building it on first use
+    TaskDialog taskDialog() {
+        if (taskDialog == null) taskDialog = new TaskDialog(primaryStage, taskHandler, this::refreshTaskList);
+        return taskDialog;
     }
 
     // Category buttons
     private void loadCategoryButtons() {
         categoryBar.getChildren().clear();
+        categoryButtons.clear();
 
         // ALL button
-        Button allButton = new Button("ALL");
+        allButton = new Button("ALL");
         allButton.getStyleClass().add("category-button");
-        allButton.setOnAction(e -> {
+        allButton.setOnAction(e -> selectCategory(null));
+        categoryBar.getChildren().add(allButton);
+
+        // OVERDUE button
+        Button overdueButton = new Button("OVERDUE");
+        overdueButton.getStyleClass().addAll("category-button", "category-overdue");
+        overdueButton.setOnAction(e -> {
             selectedCategory = null;
+            showOverdue = true;
             refreshTaskList();
         });
-        categoryBar.getChildren().add(allButton);
+        categoryBar.getChildren().add(overdueButton);
 
         // Buttons for each enum
         for (TaskCategory cat : TaskCategory.values()) {
@@ -121,102 +223,227 @@ public class ToDoAppUI {
                 catButton.getStyleClass().add("category-" + cat.name().toLowerCase());
             }
 
-            catButton.setOnAction(e -> {
-                selectedCategory = cat;
-                refreshTaskList();
-            });
+            catButton.setOnAction(e -> selectCategory(cat));
+            categoryButtons.put(cat, catButton);
             categoryBar.getChildren().add(catButton);
         }
+        updateCategoryCounts();
+    }
+
+    // Shows the number of tasks on each category button, read from TaskHandler's counters
+    private void updateCategoryCounts() {
+        allButton.setText("ALL (" + taskHandler.getTaskCount(null) + ")");
+        for (Map.Entry<TaskCategory, Button> entry : categoryButtons.entrySet()) {
+            entry.getValue().setText(entry.getKey().name() + " (" + taskHandler.getTaskCount(entry.getKey()) + ")");
+        }
+    }
+
+    // Shows the tasks of one category, or all tasks for null (package-private for the performance harness)
+    void selectCategory(TaskCategory category) {
+        selectedCategory = category;
+        showOverdue = false;
+        refreshTaskList();
     }
 
-    // Task list
-    private void refreshTaskList() {
+    // Returns the number of task rows currently shown
+    int getShownTaskCount() {
+        return rowsById.size();
+    }
+
+    // Task list (package-private for the performance harness)
+    void refreshTaskList() {
         taskListContainer.getChildren().clear();
-        List<Task> tasks = (selectedCategory == null) ?
-                taskHandler.getAllTasks() :
-                taskHandler.getTasksByCategory(selectedCategory);
+        rowsById.clear();
+        pageCursor = null;
+        if (showOverdue) {
+            addRows(taskHandler.getOverdueTasks(System.currentTimeMillis()));
+            showMoreButton.setVisible(false);
+        } else {
+            loadNextPage();
+        }
+        updateUndoButtons();
+        updateCategoryCounts();
+    }
 
+    // Reverts the last change to the task list
+    private void undo() {
+        if (taskHandler.undo()) refreshTaskList();
+    }
+
+    // Re-applies the last undone change
+    private void redo() {
+        if (taskHandler.redo()) refreshTaskList();
+    }
+
+    // Enables the Undo/Redo buttons only when there is something to undo/redo
+    private void updateUndoButtons() {
+        undoButton.setDisable(!taskHandler.canUndo());
+        redoButton.setDisable(!taskHandler.canRedo());
+    }
+
+    // Appends the next page of tasks in the selected order, read directly from TaskHandler's sorted index
+    private void loadNextPage() {
+        // One extra task tells whether there is another page after this one
+        List<Task> page = taskHandler.getTasksAfter(sortOrder, selectedCategory, pageCursor, PAGE_SIZE + 1);
+        boolean hasMore = page.size() > PAGE_SIZE;
+        if (hasMore) page = page.subList(0, PAGE_SIZE);
+        addRows(page);
+        if (!page.isEmpty()) {
+            // A copy, since the shown task may be edited before the next page is loaded
+            Task last = page.get(page.size() - 1);
+            pageCursor = new Task(last.getId(), last.getCategory(), null, last.getDueAt(), last.getPriority());
+        }
+        showMoreButton.setVisible(hasMore);
+    }
+
+    // Appends rows for the given tasks
+    private void addRows(List<Task> tasks) {
         for (Task task : tasks) {
-            TaskRow row = new TaskRow(task, new TaskRow.TaskRowListener() {
-                @Override
-                public void onTaskClicked(Task task) {
-                    openEditTaskPopup(task);
-                }
-
-                @Override
-                public void onTaskCompleted(Task task) {
-                    taskHandler.removeTask(task.getId());
-                    refreshTaskList();
-                }
-            });
+            TaskRow row = createRow(task);
+            rowsById.put(task.getId(), row);
             taskListContainer.getChildren().add(row);
         }
     }
 
-    // Add Task Popup
-    private void openAddTaskPopup(Stage owner) {
-        Stage popup = new Stage();
-        popup.initModality(Modality.APPLICATION_MODAL);
-        popup.initOwner(owner);
-        popup.setTitle("Add Task");
-
-        VBox layout = new VBox(10);
-        layout.setPadding(new Insets(10));
-
-        // Category selection
-        ComboBox<TaskCategory> categoryBox = new ComboBox<>();
-        categoryBox.getItems().addAll(TaskCategory.values());
-        categoryBox.setValue(TaskCategory.UNCATEGORIZED);
+    // Creates the row for a task, wired to the edit and complete actions
+    private TaskRow createRow(Task task) {
+        return new TaskRow(task, new TaskRow.TaskRowListener() {
+            @Override
+            public void onTaskClicked(Task task) {
+                taskDialog().openForEdit(task);
+            }
 
-        // Description
-        TextField descriptionField = new TextField();
-        descriptionField.setPromptText("Task description");
+            @Override
+            public void onTaskCompleted(Task task) {
+                taskHandler.completeTask(task.getId());
+                refreshTaskList();
+            }
+        });
+    }
 
-        // Add button
-        Button addButton = new Button("Add");
-        addButton.setOnAction(e -> {
-            taskHandler.addTask(categoryBox.getValue(), descriptionField.getText());
-            popup.close();
+    // Updates only the rows of tasks changed by another program instead of rebuilding the list
+    private void applyExternalChanges(List<Task> changedTasks, List<Long> removedIds) {
+        // Only the newest-first list is patched in place; other orders are simply reloaded
+        if (showOverdue || sortOrder != TaskSortOrder.NEWEST) {
             refreshTaskList();
-        });
+            return;
+        }
+        updateCategoryCounts();
+        List<Node> rows = taskListContainer.getChildren();
+        for (long id : removedIds) {
+            TaskRow row = rowsById.remove(id);
+            if (row != null) rows.remove(row);
+        }
+        for (Task task : changedTasks) {
+            TaskRow oldRow = rowsById.remove(task.getId());
+            boolean visible = selectedCategory == null || task.getCategory() == selectedCategory;
+            if (oldRow != null && visible) {
+                TaskRow row = createRow(task);
+                rowsById.put(task.getId(), row);
+                rows.set(rows.indexOf(oldRow), row);
+            } else if (oldRow != null) {
+                rows.remove(oldRow);
+            } else if (visible) {
+                int index = rowIndexFor(task.getId());
+                // Tasks after the last loaded row belong to a page that is not shown yet
+                if (index == rows.size() && showMoreButton.isVisible()) continue;
+                TaskRow row = createRow(task);
+                rowsById.put(task.getId(), row);
+                rows.add(index, row);
+            }
+        }
+        // Merging external changes cleared the undo history
+        updateUndoButtons();
+    }
 
-        layout.getChildren().addAll(new Label("Category:"), categoryBox,
-                new Label("Description:"), descriptionField, addButton);
+    // Shows a non-blocking reminder for a task whose due date was reached
+    private void showReminder(Task task) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Reminder");
+        alert.setHeaderText("Task due");
+        alert.setContentText(task.getDescription());
+        alert.show();
+        if (showOverdue) refreshTaskList();
+    }
 
-        Scene scene = new Scene(layout, 300, 200);
-        popup.setScene(scene);
-        popup.showAndWait();
+    // Binary search for the position of a task ID in the newest-first row list
+    private int rowIndexFor(long id) {
+        List<Node> rows = taskListContainer.getChildren();
+        int low = 0;
+        int high = rows.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (((TaskRow) rows.get(mid)).getTask().getId() > id) low = mid + 1;
+            else high = mid;
+        }
+        return low;
     }
 
-    // Edit Task Popup (similar to Add)
-    private void openEditTaskPopup(Task task) {
+    // History Popup: completed tasks, most recently completed first, one page at a time
+    private void openHistoryPopup(Stage owner) {
         Stage popup = new Stage();
         popup.initModality(Modality.APPLICATION_MODAL);
-        popup.setTitle("Edit Task");
-
-        VBox layout = new VBox(10);
-        layout.setPadding(new Insets(10));
+        popup.initOwner(owner);
+        popup.setTitle("History");
 
-        // Category
+        // Filters
         ComboBox<TaskCategory> categoryBox = new ComboBox<>();
         categoryBox.getItems().addAll(TaskCategory.values());
-        categoryBox.setValue(task.getCategory());
-
-        // Description
-        TextField descriptionField = new TextField(task.getDescription());
-
-        // Save button
-        Button saveButton = new Button("Save");
-        saveButton.setOnAction(e -> {
-            taskHandler.updateTask(task.getId(), categoryBox.getValue(), descriptionField.getText());
-            popup.close();
-            refreshTaskList();
+        categoryBox.setPromptText("All categories");
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search");
+        Button clearButton = new Button("Clear");
+
+        // Results and paging
+        VBox entryList = new VBox(5);
+        ScrollPane entryScroll = new ScrollPane(entryList);
+        entryScroll.setFitToWidth(true);
+        VBox.setVgrow(entryScroll, Priority.ALWAYS);
+        Button previousButton = new Button("Previous");
+        Button nextButton = new Button("Next");
+        Label pageLabel = new Label();
+
+        int[] page = {0};
+        Runnable showPage = () -> {
+            // One extra entry tells whether there is another page after this one
+            List<TaskArchive.Entry> entries = taskHandler.getCompletedTasks(categoryBox.getValue(),
+                    searchField.getText(), page[0] * HISTORY_PAGE_SIZE, HISTORY_PAGE_SIZE + 1);
+            boolean hasMore = entries.size() > HISTORY_PAGE_SIZE;
+            entryList.getChildren().clear();
+            for (TaskArchive.Entry entry : hasMore ? entries.subList(0, HISTORY_PAGE_SIZE) : entries) {
+                String completed = Instant.ofEpochMilli(entry.completedAt())
+                        .atZone(ZoneId.systemDefault()).format(COMPLETED_FORMAT);
+                Label label = new Label(completed + "  [" + entry.task().getCategory() + "]  "
+                        + entry.task().getDescription());
+                label.setWrapText(true);
+                entryList.getChildren().add(label);
+            }
+            previousButton.setDisable(page[0] == 0);
+            nextButton.setDisable(!hasMore);
+            pageLabel.setText("Page " + (page[0] + 1));
+        };
+
+        previousButton.setOnAction(e -> { page[0]--; showPage.run(); });
+        nextButton.setOnAction(e -> { page[0]++; showPage.run(); });
+        categoryBox.setOnAction(e -> { page[0] = 0; showPage.run(); });
+        searchField.setOnAction(e -> { page[0] = 0; showPage.run(); });
+        clearButton.setOnAction(e -> {
+            categoryBox.setValue(null);
+            searchField.clear();
+            page[0] = 0;
+            showPage.run();
         });
 
-        layout.getChildren().addAll(new Label("Category:"), categoryBox,
-                new Label("Description:"), descriptionField, saveButton);
+        HBox filterBar = new HBox(10, categoryBox, searchField, clearButton);
+        filterBar.setAlignment(Pos.CENTER_LEFT);
+        HBox pagingBar = new HBox(10, previousButton, pageLabel, nextButton);
+        pagingBar.setAlignment(Pos.CENTER);
+
+        VBox layout = new VBox(10, filterBar, entryScroll, pagingBar);
+        layout.setPadding(new Insets(10));
+        showPage.run();
 
-        Scene scene = new Scene(layout, 300, 200);
+        Scene scene = new Scene(layout, 500, 600);
         popup.setScene(scene);
         popup.showAndWait();
     }
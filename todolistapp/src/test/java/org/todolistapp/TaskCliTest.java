@@ -0,0 +1,147 @@
+package org.todolistapp;
+
+import org.junit.jupiter.api.*;
+import org.todolistapp.models.Task;
+import org.todolistapp.models.TaskCategory;
+import org.todolistapp.models.TaskPriority;
+import org.todolistapp.storage.CsvHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+/**
+ * TaskCliTest.java
+
+ * Unit tests for the TaskCli command-line import/export.
+
+ * Responsibilities:
+ *  - Verify that imported tasks get new IDs after the existing ones.
+ *  - Verify that malformed CSV and JSON Lines rows are skipped and reported.
+ *  - Verify that an export followed by an import reproduces the tasks.
+ *  - Verify that an import that cannot write exits with an error.
+
+ * Notes:
+ *  - Each test works in a fresh temporary directory.
+ */
+
+class TaskCliTest {
+
+    private Path directory;
+    private Path taskFile;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("cli");
+        taskFile = directory.resolve("tasks.csv");
+        Files.writeString(taskFile, "7,WORK,Existing" + System.lineSeparator());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Test that CSV rows are imported with fresh IDs and malformed ones are reported by line number.
+     */
+    @Test
+    void testImportCsv() throws IOException {
+        Path input = directory.resolve("input.csv");
+        Files.write(input, List.of(
+                "1,SCHOOL;priority=HIGH,Essay, draft",
+                "not a task",
+                "",
+                "2,NOPE,Unknown category",
+                "x,WORK,Bad id",
+                "3,ERRAND,Groceries"));
+
+        assertEquals(0, run("import", taskFile.toString(), input.toString()));
+
+        List<Task> tasks = new CsvHandler(taskFile.toString()).loadTasks();
+        assertEquals(3, tasks.size());
+        assertEquals(8, tasks.get(1).getId());
+        assertEquals("Essay, draft", tasks.get(1).getDescription());
+        assertEquals(TaskPriority.HIGH, tasks.get(1).getPriority());
+        assertEquals(9, tasks.get(2).getId());
+
+        String errors = err.toString();
+        assertTrue(errors.contains("Line 2 skipped"), errors);
+        assertTrue(errors.contains("Line 4 skipped"), errors);
+        assertTrue(errors.contains("Line 5 skipped"), errors);
+        assertTrue(out.toString().contains("Imported 2 tasks"), out.toString());
+    }
+
+    /**
+     * Test that an export to compressed JSON Lines can be imported again.
+     */
+    @Test
+    void testJsonLinesRoundTrip() throws IOException {
+        CsvHandler storage = new CsvHandler(taskFile.toString());
+        storage.saveChanges(List.of(new Task(8, TaskCategory.HEALTH, "Run \"5k\"\\fast", 1700000000000L,
+                TaskPriority.LOW)), List.of(7L));
+        storage.close();
+
+        Path exported = directory.resolve("tasks.jsonl.gz");
+        assertEquals(0, run("export", taskFile.toString(), exported.toString()));
+        assertTrue(out.toString().contains("Exported 1 tasks"), out.toString());
+
+        Path copy = directory.resolve("copy.csv");
+        assertEquals(0, run("import", copy.toString(), exported.toString()));
+        List<Task> tasks = new CsvHandler(copy.toString()).loadTasks();
+        assertEquals(1, tasks.size());
+        assertEquals("1,HEALTH;due=1700000000000;priority=LOW,Run \"5k\"\\fast", tasks.get(0).toString());
+    }
+
+    /**
+     * Test that malformed JSON lines are skipped and a bad command prints the usage.
+     */
+    @Test
+    void testMalformedJsonAndUsage() throws IOException {
+        Path input = directory.resolve("input.jsonl");
+        Files.write(input, List.of(
+                "{\"category\":\"WORK\",\"description\":\"Ok\"}",
+                "{\"category\":\"WORK\"",
+                "{\"description\":\"No category\"}",
+                "{\"category\":\"WORK\",\"description\":\"Two\\nlines\"}"));
+
+        assertEquals(0, run("import", taskFile.toString(), input.toString()));
+        assertEquals(2, new CsvHandler(taskFile.toString()).loadTasks().size());
+        assertTrue(out.toString().contains("skipped 3 malformed lines"), out.toString());
+
+        assertEquals(1, run("convert", taskFile.toString()));
+        assertTrue(err.toString().contains("Usage"));
+    }
+
+    /**
+     * Test that an import whose writes fail exits with an error and does not report the tasks as imported.
+     */
+    @Test
+    void testImportWriteFailure() throws IOException {
+        // Every write to /dev/full fails as if the disk were full
+        Path full = Path.of("/dev/full");
+        Assumptions.assumeTrue(Files.isWritable(full), "Needs /dev/full");
+        Path input = directory.resolve("input.csv");
+        Files.write(input, List.of("1,WORK,One", "2,WORK,Two"));
+
+        assertEquals(1, run("import", full.toString(), input.toString()));
+        assertTrue(err.toString().contains("Import stopped after 0 tasks were written"), err.toString());
+        assertFalse(out.toString().contains("Imported"), out.toString());
+    }
+
+    private int run(String... args) {
+        return TaskCli.run(args, new PrintStream(out, true), new PrintStream(err, true));
+    }
+}
@@ -0,0 +1,45 @@
+package org.todolistapp;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.fail;
+/**
+ * TestConditions.java
+
+ * Shared helper for tests that wait on background threads (replication,
+ * change stream subscribers).
+
+ * Responsibilities:
+ *  - Poll a condition until it holds, failing the test if it does not hold in time.
+
+ * Notes:
+ *  - The timeout is generous so slow build machines do not cause failures;
+ *    a passing test only waits as long as the condition takes.
+ */
+
+public final class TestConditions {
+    // Longest wait for a condition
+    public static final long TIMEOUT_MILLIS = 10_000;
+    private static final long POLL_MILLIS = 5;
+
+    private TestConditions() { }
+
+    // Waits until the condition holds, failing the test with a generic message if it does not in time
+    public static void awaitCondition(BooleanSupplier condition) {
+        awaitCondition(condition, "Condition not reached in time");
+    }
+
+    // Waits until the condition holds. Fails the test with the message if it does not within the timeout
+    public static void awaitCondition(BooleanSupplier condition, String message) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail(message);
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+}
@@ -13,6 +13,7 @@ import static org.junit.jupiter.api.Assertions.*;
  *  - Verify that Task objects correctly store and return their ID, category, and description.
  *  - Ensure the fromCSV and toString methods correctly serialize and deserialize tasks.
  *  - Confirm that setters update Task properties correctly.
+ *  - Check that optional attributes such as the due date survive the CSV round trip.
 
  * Notes:
  *  - Uses JUnit 5.
@@ -86,4 +87,44 @@ class TaskTest {
         String invalidCsv = "invalid,input";
         assertThrows(IllegalArgumentException.class, () -> Task.fromCSV(invalidCsv));
     }
+
+    /**
+     * Test that a due date is stored in the category field and read back.
+     */
+    @Test
+    void testDueDateRoundTrip() {
+        Task task = new Task(3L, TaskCategory.SCHOOL, "Essay, final draft", 1700000000000L);
+        String csv = task.toString();
+
+        assertEquals("3,SCHOOL;due=1700000000000,Essay, final draft", csv);
+        Task parsed = Task.fromCSV(csv);
+        assertEquals(TaskCategory.SCHOOL, parsed.getCategory());
+        assertEquals(1700000000000L, parsed.getDueAt());
+        assertEquals("Essay, final draft", parsed.getDescription());
+    }
+
+    /**
+     * Test that tasks without a due date are not overdue and unknown attributes are ignored.
+     */
+    @Test
+    void testNoDueDate() {
+        Task task = Task.fromCSV("4,WORK;future=1,Plan sprint");
+
+        assertFalse(task.hasDueDate());
+        assertFalse(task.isOverdue(Long.MAX_VALUE));
+        assertEquals("4,WORK,Plan sprint", task.toString());
+    }
+
+    /**
+     * Test that the priority is stored alongside the due date and read back.
+     */
+    @Test
+    void testPriorityRoundTrip() {
+        Task task = new Task(6L, TaskCategory.WORK, "Ship release", 42L, TaskPriority.HIGH);
+        String csv = task.toString();
+
+        assertEquals("6,WORK;due=42;priority=HIGH,Ship release", csv);
+        assertEquals(TaskPriority.HIGH, Task.fromCSV(csv).getPriority());
+        assertEquals(TaskPriority.NONE, Task.fromCSV("7,WORK,Plain").getPriority());
+    }
 }
@@ -0,0 +1,175 @@
+package org.todolistapp.replication;
+
+import org.junit.jupiter.api.*;
+import org.todolistapp.TestConditions;
+import org.todolistapp.models.Task;
+import org.todolistapp.models.TaskCategory;
+import org.todolistapp.service.TaskHandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.todolistapp.TestConditions.awaitCondition;
+/**
+ * ReplicationTest.java
+
+ * Tests log-shipping replication between a ReplicationLeader and a
+ * ReplicationFollower talking over a real loopback socket in one JVM.
+
+ * Responsibilities:
+ *  - Verify that a new follower catches up from a snapshot and then follows changes.
+ *  - Verify that a restarted follower resumes from its saved position.
+ *  - Verify that a follower behind the leader's change log gets a new snapshot.
+ *  - Verify that ReplicationMain runs as a follower in a separate process.
+
+ * Notes:
+ *  - Leader and follower each use their own task file in a temporary directory.
+ *  - The follower process is started with the test's own classpath.
+ */
+
+class ReplicationTest {
+
+    private Path directory;
+    private TaskHandler leaderTasks;
+    private TaskHandler followerTasks;
+    private ReplicationLeader leader;
+    private ReplicationFollower follower;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("replication");
+        leaderTasks = new TaskHandler(directory.resolve("leader.csv").toString());
+        followerTasks = new TaskHandler(directory.resolve("follower.csv").toString());
+        leader = new ReplicationLeader(leaderTasks, 0);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (follower != null) follower.close();
+        leader.close();
+        leaderTasks.close();
+        followerTasks.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Test that a follower starts from a snapshot and then applies adds, edits and completions.
+     */
+    @Test
+    void testSnapshotThenStream() {
+        leaderTasks.addTask(TaskCategory.WORK, "Existing one");
+        leaderTasks.addTask(TaskCategory.SCHOOL, "Existing two");
+        follower = startFollower();
+        awaitInSync();
+        assertEquals(1, leader.getSnapshotsSent());
+
+        Task added = leaderTasks.addTask(TaskCategory.ERRAND, "Groceries");
+        leaderTasks.updateTask(1, TaskCategory.HEALTH, "Edited");
+        leaderTasks.completeTask(2);
+        awaitInSync();
+        assertEquals(1, leader.getSnapshotsSent(), "Changes after the snapshot should be streamed");
+        assertEquals(leader.getLastAckedSequence(), follower.getLastAppliedSequence());
+
+        // The follower's store is saved, not only its memory
+        TaskHandler reloaded = new TaskHandler(directory.resolve("follower.csv").toString());
+        assertEquals(csv(List.of(added, leaderTasks.getAllTasks().get(1))), csv(reloaded.getAllTasks()));
+        reloaded.close();
+    }
+
+    /**
+     * Test that a restarted follower resumes from its saved position without a new snapshot.
+     */
+    @Test
+    void testFollowerResumesAfterRestart() {
+        leaderTasks.addTask(TaskCategory.WORK, "One");
+        follower = startFollower();
+        awaitInSync();
+        follower.close();
+        assertTrue(Files.exists(directory.resolve("follower.csv.replica")));
+        assertFalse(Files.exists(directory.resolve("follower.csv.replica.tmp")), "The position is renamed into place");
+
+        leaderTasks.addTask(TaskCategory.WORK, "Two");
+        leaderTasks.removeTask(1);
+        follower = startFollower();
+        awaitInSync();
+        assertEquals(1, leader.getSnapshotsSent());
+    }
+
+    /**
+     * Test that a follower further behind than the change log keeps is sent a new snapshot.
+     */
+    @Test
+    void testLaggingFollowerGetsSnapshot() {
+        leaderTasks.setChangeLogCapacity(2);
+        leaderTasks.addTask(TaskCategory.WORK, "One");
+        follower = startFollower();
+        awaitInSync();
+        follower.close();
+
+        for (int i = 0; i < 5; i++) leaderTasks.addTask(TaskCategory.OTHER, "Task " + i);
+        follower = startFollower();
+        awaitInSync();
+        assertEquals(2, leader.getSnapshotsSent());
+    }
+
+    /**
+     * Test that ReplicationMain started as a separate follower process catches up with the leader
+     * and keeps what it applied after it is stopped.
+     */
+    @Test
+    void testFollowerProcess() throws IOException, InterruptedException {
+        leaderTasks.addTask(TaskCategory.WORK, "Before start");
+        Path taskFile = directory.resolve("process.csv");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "org.todolistapp.ReplicationMain", "follower", taskFile.toString(),
+                "localhost", Integer.toString(leader.getPort()))
+                .redirectErrorStream(true)
+                .redirectOutput(directory.resolve("follower.log").toFile())
+                .start();
+        try {
+            awaitCondition(() -> leader.getLastAckedSequence() == leaderTasks.getLastChangeSequence(),
+                    "Follower process did not catch up in time");
+            leaderTasks.addTask(TaskCategory.ERRAND, "After start");
+            leaderTasks.updateTask(1, TaskCategory.HEALTH, "Edited");
+            awaitCondition(() -> leader.getLastAckedSequence() == leaderTasks.getLastChangeSequence(),
+                    "Follower process did not apply the changes in time");
+        } finally {
+            // Stopped like a service: the shutdown hook closes the task store
+            process.destroy();
+            if (!process.waitFor(TestConditions.TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) process.destroyForcibly();
+        }
+
+        TaskHandler stored = new TaskHandler(taskFile.toString());
+        assertEquals(csv(leaderTasks.getAllTasks()), csv(stored.getAllTasks()));
+        stored.close();
+        assertTrue(Files.exists(directory.resolve("process.csv.replica")));
+    }
+
+    private ReplicationFollower startFollower() {
+        return new ReplicationFollower(followerTasks, "localhost", leader.getPort(),
+                directory.resolve("follower.csv.replica"));
+    }
+
+    // Waits until the follower applied everything the leader has and holds the same tasks
+    private void awaitInSync() {
+        awaitCondition(() -> follower.getLastAppliedSequence() == leaderTasks.getLastChangeSequence()
+                && leader.getLastAckedSequence() == leaderTasks.getLastChangeSequence()
+                && csv(followerTasks.getAllTasks()).equals(csv(leaderTasks.getAllTasks())),
+                "Follower did not catch up in time");
+    }
+
+    private static List<String> csv(List<Task> tasks) {
+        return tasks.stream().map(Task::toString).toList();
+    }
+}
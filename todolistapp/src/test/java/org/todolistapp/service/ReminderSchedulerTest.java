@@ -0,0 +1,112 @@
+package org.todolistapp.service;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReminderSchedulerTest.java
+
+ * Unit tests for the ReminderScheduler class.
+
+ * Responsibilities:
+ *  - Verify that reminders fire once their deadline is reached, in deadline order.
+ *  - Verify that cancelled and rescheduled reminders do not fire at the old time.
+ *  - Verify that deadlines beyond one turn of the wheel cascade down the levels
+ *    and still fire on time, in order.
+
+ * Notes:
+ *  - Uses JUnit 5.
+ *  - Uses a short tick and a small wheel so the tests run quickly.
+ */
+
+class ReminderSchedulerTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    private final List<Long> fired = new CopyOnWriteArrayList<>();
+    private ReminderScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ReminderScheduler(TICK_MILLIS, 8, fired::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    /**
+     * Test that reminders fire after their deadline, earliest first.
+     */
+    @Test
+    void testRemindersFireInOrder() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        scheduler.schedule(2, now + 60);
+        scheduler.schedule(1, now + 20);
+        assertEquals(2, scheduler.size());
+
+        waitForReminders(2);
+        assertEquals(List.of(1L, 2L), fired);
+        assertEquals(0, scheduler.size());
+    }
+
+    /**
+     * Test that a cancelled reminder never fires and a rescheduled one only fires once.
+     */
+    @Test
+    void testCancelAndReschedule() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        scheduler.schedule(1, now + 20);
+        scheduler.schedule(2, now + 20);
+        assertTrue(scheduler.cancel(1));
+        assertFalse(scheduler.cancel(1));
+        scheduler.schedule(2, now + 40);
+
+        waitForReminders(1);
+        Thread.sleep(5 * TICK_MILLIS);
+        assertEquals(List.of(2L), fired);
+    }
+
+    /**
+     * Test that a deadline several turns of the wheel away does not fire early.
+     */
+    @Test
+    void testDeadlineBeyondOneRound() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30 * TICK_MILLIS; // wheel covers 8 ticks
+        scheduler.schedule(1, deadline);
+
+        waitForReminders(1);
+        assertTrue(System.currentTimeMillis() >= deadline, "Reminder fired before its deadline");
+    }
+
+    /**
+     * Test that reminders spread over several levels of the wheel all fire, in deadline order and not early.
+     */
+    @Test
+    void testRemindersCascadeThroughLevels() throws InterruptedException {
+        // With 8 slots, level 0 covers 8 ticks, level 1 covers 64 and level 2 covers 512
+        long now = System.currentTimeMillis();
+        long[] offsets = {75, 3, 40, 9, 64, 17, 120};
+        for (int i = 0; i < offsets.length; i++) {
+            scheduler.schedule(i, now + offsets[i] * TICK_MILLIS);
+        }
+        waitForReminders(offsets.length);
+        assertTrue(System.currentTimeMillis() >= now + 120 * TICK_MILLIS, "Reminder fired before its deadline");
+        assertEquals(List.of(1L, 3L, 5L, 2L, 4L, 0L, 6L), fired);
+        assertEquals(0, scheduler.size());
+    }
+
+    // Waits up to two seconds for the given number of reminders to fire
+    private void waitForReminders(int count) throws InterruptedException {
+        long giveUp = System.currentTimeMillis() + 2000;
+        while (fired.size() < count && System.currentTimeMillis() < giveUp) {
+            Thread.sleep(TICK_MILLIS);
+        }
+        assertEquals(count, fired.size());
+    }
+}
@@ -0,0 +1,178 @@
+package org.todolistapp.service;
+
+import org.junit.jupiter.api.*;
+import org.todolistapp.models.Task;
+import org.todolistapp.models.TaskCategory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.todolistapp.TestConditions.awaitCondition;
+/**
+ * TaskChangePublisherTest.java
+
+ * Unit tests for the Flow publisher of TaskHandler's change stream.
+
+ * Responsibilities:
+ *  - Verify ordered, lossless delivery with the BLOCK policy, without holding up changes.
+ *  - Verify the DROP and COALESCE policies when a subscriber requests nothing.
+ *  - Verify the error for a BLOCK subscriber that falls behind the change log,
+ *    and completion when TaskHandler closes.
+
+ * Notes:
+ *  - Each test uses its own temporary CSV file.
+ */
+
+class TaskChangePublisherTest {
+
+    private TaskHandler handler;
+    private Path tempCsv;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempCsv = Files.createTempFile("tasks", ".csv");
+        handler = new TaskHandler(tempCsv.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        handler.close();
+        Files.deleteIfExists(tempCsv);
+        Files.deleteIfExists(Path.of(tempCsv + ".journal"));
+    }
+
+    /**
+     * Test that a stuck BLOCK subscriber does not hold up changes and later gets every change in order.
+     */
+    @Test
+    void testBlockDeliversEverythingInOrder() {
+        CountDownLatch gate = new CountDownLatch(1);
+        RecordingSubscriber slow = new RecordingSubscriber(1, gate);
+        handler.getChangePublisher().subscribe(slow, 4, OverflowPolicy.BLOCK);
+        awaitCondition(() -> slow.subscription != null);
+
+        // The subscriber is stuck in its first onNext, yet all changes go through
+        for (int i = 0; i < 200; i++) handler.addTask(TaskCategory.WORK, "Task " + i);
+        assertTrue(slow.received.size() <= 1);
+
+        gate.countDown();
+        awaitCondition(() -> slow.received.size() == 200);
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i + 1, slow.received.get(i).sequence());
+            assertEquals(i + 1, slow.received.get(i).taskId());
+        }
+        assertEquals(0, handler.getChangePublisher().getDroppedCount());
+    }
+
+    /**
+     * Test that COALESCE keeps only the latest change per task while nothing is requested.
+     */
+    @Test
+    void testCoalesceKeepsLatestChangePerTask() {
+        RecordingSubscriber idle = new RecordingSubscriber(0, null);
+        handler.getChangePublisher().subscribe(idle, 10, OverflowPolicy.COALESCE);
+        awaitCondition(() -> idle.subscription != null);
+
+        Task task = handler.addTask(TaskCategory.WORK, "Draft 0");
+        Task other = handler.addTask(TaskCategory.SCHOOL, "Other");
+        for (int i = 1; i <= 50; i++) handler.updateTask(task.getId(), null, "Draft " + i);
+        handler.removeTask(other.getId());
+
+        idle.subscription.request(Long.MAX_VALUE);
+        awaitCondition(() -> idle.received.size() == 2);
+        assertEquals(task.toString(), idle.received.get(0).task());
+        assertTrue(idle.received.get(1).isRemoval());
+        assertTrue(idle.received.get(0).sequence() < idle.received.get(1).sequence());
+    }
+
+    /**
+     * Test that DROP discards changes that do not fit the buffer while nothing is requested.
+     */
+    @Test
+    void testDropDiscardsOverflow() {
+        RecordingSubscriber idle = new RecordingSubscriber(0, null);
+        handler.getChangePublisher().subscribe(idle, 2, OverflowPolicy.DROP);
+        awaitCondition(() -> idle.subscription != null);
+
+        for (int i = 0; i < 10; i++) handler.addTask(TaskCategory.WORK, "Task " + i);
+        awaitCondition(() -> handler.getChangePublisher().getDroppedCount() == 8);
+
+        idle.subscription.request(10);
+        awaitCondition(() -> idle.received.size() == 2);
+        assertEquals(List.of(1L, 2L), idle.received.stream().map(TaskChange::sequence).toList());
+    }
+
+    /**
+     * Test that a BLOCK subscriber further behind than the change log gets an error, and that close completes.
+     */
+    @Test
+    void testBlockBehindLogFailsAndCloseCompletes() {
+        handler.setChangeLogCapacity(5);
+        RecordingSubscriber idle = new RecordingSubscriber(0, null);
+        RecordingSubscriber live = new RecordingSubscriber(Long.MAX_VALUE, null);
+        handler.getChangePublisher().subscribe(idle, 1, OverflowPolicy.BLOCK);
+        handler.getChangePublisher().subscribe(live);
+        awaitCondition(() -> idle.subscription != null && live.subscription != null);
+
+        for (int i = 0; i < 20; i++) handler.addTask(TaskCategory.WORK, "Task " + i);
+        idle.subscription.request(100);
+        awaitCondition(() -> idle.error != null);
+        assertInstanceOf(IllegalStateException.class, idle.error);
+        assertEquals(1, idle.received.size());
+
+        handler.close();
+        awaitCondition(() -> live.completed);
+        assertEquals(0, handler.getChangePublisher().getSubscriberCount());
+    }
+
+    // Records what it receives, requesting a fixed amount up front. With a gate, each change waits
+    // for the gate to open and then requests one more
+    private static final class RecordingSubscriber implements Flow.Subscriber<TaskChange> {
+        private final long initialRequest;
+        private final CountDownLatch gate;
+        private final List<TaskChange> received = new CopyOnWriteArrayList<>();
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+        private volatile boolean completed;
+
+        RecordingSubscriber(long initialRequest, CountDownLatch gate) {
+            this.initialRequest = initialRequest;
+            this.gate = gate;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(TaskChange change) {
+            received.add(change);
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -3,10 +3,13 @@ package org.todolistapp.service;
 import org.junit.jupiter.api.*;
 import org.todolistapp.models.Task;
 import org.todolistapp.models.TaskCategory;
+import org.todolistapp.models.TaskPriority;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -42,7 +45,16 @@ class TaskHandlerTest {
 
     @AfterEach
     void tearDown() throws IOException {
+        handler.close();
         Files.deleteIfExists(tempCsv);
+        Files.deleteIfExists(Path.of(tempCsv + ".journal"));
+        Path archive = Path.of(tempCsv + TaskHandler.ARCHIVE_SUFFIX);
+        if (Files.isDirectory(archive)) {
+            try (var files = Files.list(archive)) {
+                for (Path file : files.toList()) Files.delete(file);
+            }
+            Files.delete(archive);
+        }
     }
 
     /**
@@ -162,4 +174,327 @@ class TaskHandlerTest {
         assertEquals("Two", tasks.get(0).getDescription()); // newest first
         assertEquals("One", tasks.get(1).getDescription());
     }
+
+    /**
+     * Test that editing a task only appends the change instead of rewriting
+     * the CSV file, and that the change survives a reload.
+     */
+    @Test
+    void testUpdateSavesOnlyChangedTask() throws IOException {
+        handler.addTask(TaskCategory.WORK, "One");
+        Task t2 = handler.addTask(TaskCategory.OTHER, "Two");
+        String csvBefore = Files.readString(tempCsv);
+
+        handler.updateTask(t2.getId(), null, "Two, edited");
+        handler.removeTask(1);
+
+        assertEquals(csvBefore, Files.readString(tempCsv), "CSV file should not be rewritten");
+        List<String> journal = Files.readAllLines(Path.of(tempCsv + ".journal"));
+        assertEquals("+2,OTHER,Two, edited", journal.get(journal.size() - 2));
+        assertEquals("-1", journal.get(journal.size() - 1));
+
+        TaskHandler reloaded = new TaskHandler(tempCsv.toString());
+        List<Task> tasks = reloaded.getAllTasks();
+        assertEquals(1, tasks.size());
+        assertEquals("Two, edited", tasks.get(0).getDescription());
+    }
+
+    /**
+     * Test that tasks appended to the CSV file by another program are merged
+     * and reported to listeners, while our own writes are not.
+     */
+    @Test
+    void testReloadAppendedExternalTasks() throws IOException {
+        Files.write(tempCsv, List.of("1,WORK,One"));
+        handler = new TaskHandler(tempCsv.toString());
+        List<Task> reported = new ArrayList<>();
+        handler.addChangeListener((changed, removed) -> reported.addAll(changed));
+
+        handler.addTask(TaskCategory.WORK, "Two");
+        assertFalse(handler.reloadExternalChanges(), "Own writes should not count as external changes");
+
+        Files.writeString(tempCsv, "7,ERRAND,Buy milk" + System.lineSeparator(), StandardOpenOption.APPEND);
+        assertTrue(handler.reloadExternalChanges());
+
+        assertEquals(1, reported.size());
+        assertEquals(7L, reported.get(0).getId());
+        assertEquals(3, handler.getAllTasks().size());
+        assertEquals(8L, handler.addTask(null, "Next").getId(), "IDs should continue after external tasks");
+    }
+
+    /**
+     * Test that a rewrite of the CSV file by another program is diffed, so only
+     * changed and removed tasks are reported, and that it wins over changes
+     * that were only in the journal.
+     */
+    @Test
+    void testReloadRewrittenExternalFile() throws IOException {
+        handler.addTask(TaskCategory.WORK, "One");
+        handler.addTask(TaskCategory.WORK, "Two");
+        handler.addTask(TaskCategory.WORK, "Three");
+        assertTrue(Files.exists(Path.of(tempCsv + ".journal")), "The tasks should only be journaled so far");
+        List<Task> changedTasks = new ArrayList<>();
+        List<Long> removedIds = new ArrayList<>();
+        handler.addChangeListener((changed, removed) -> {
+            changedTasks.addAll(changed);
+            removedIds.addAll(removed);
+        });
+
+        Files.write(tempCsv, List.of("3,WORK,Three", "2,SCHOOL,Two, edited"));
+        assertTrue(handler.reloadExternalChanges());
+
+        assertEquals(1, changedTasks.size());
+        assertEquals("Two, edited", changedTasks.get(0).getDescription());
+        assertEquals(List.of(1L), removedIds);
+        assertEquals(2, handler.getAllTasks().size());
+        assertFalse(handler.canUndo(), "Undo must not restore our version over the external edit");
+        assertFalse(handler.undo());
+
+        // The stale journal must not bring task 1 back or undo the edit after a restart
+        handler.close();
+        handler = new TaskHandler(tempCsv.toString());
+        assertEquals(List.of("Three", "Two, edited"),
+                handler.getAllTasks().stream().map(Task::getDescription).toList());
+    }
+
+    /**
+     * Test that the CSV file holds every task once watching starts and after
+     * an external merge, so other programs reading it are not missing changes.
+     */
+    @Test
+    void testWatchingKeepsCsvFileComplete() throws IOException {
+        handler.addTask(TaskCategory.WORK, "One");
+        handler.addTask(TaskCategory.WORK, "Two");
+        handler.startWatching();
+        assertEquals(List.of("2,WORK,Two", "1,WORK,One"), Files.readAllLines(tempCsv));
+
+        handler.addTask(TaskCategory.WORK, "Three");
+        Files.writeString(tempCsv, "4,ERRAND,Buy milk" + System.lineSeparator(), StandardOpenOption.APPEND);
+        handler.reloadExternalChanges();
+        assertEquals(4, Files.readAllLines(tempCsv).size(), "Journaled task 3 should be written to the CSV file");
+    }
+
+    /**
+     * Test that overdue tasks come from the due-date index, longest overdue first,
+     * and follow due date changes.
+     */
+    @Test
+    void testGetOverdueTasks() {
+        Task later = handler.addTask(TaskCategory.WORK, "Later", 3000);
+        Task sooner = handler.addTask(TaskCategory.WORK, "Sooner", 1000);
+        handler.addTask(TaskCategory.WORK, "No due date");
+        Task future = handler.addTask(TaskCategory.WORK, "Future", 9000);
+
+        assertEquals(List.of(sooner, later), handler.getOverdueTasks(5000));
+
+        handler.updateTask(future.getId(), null, null, 500);
+        handler.updateTask(sooner.getId(), null, null, Task.NO_DUE_DATE);
+        handler.removeTask(later.getId());
+        assertEquals(List.of(future), handler.getOverdueTasks(5000));
+
+        TaskHandler reloaded = new TaskHandler(tempCsv.toString());
+        assertEquals(500, reloaded.getOverdueTasks(5000).get(0).getDueAt());
+    }
+
+    /**
+     * Test that each sort order returns pages from its index and that
+     * edits move tasks to their new position.
+     */
+    @Test
+    void testGetTasksSortedAndPaged() {
+        Task low = handler.addTask(TaskCategory.WORK, "Low", 3000, TaskPriority.LOW);
+        Task high = handler.addTask(TaskCategory.SCHOOL, "High", Task.NO_DUE_DATE, TaskPriority.HIGH);
+        Task none = handler.addTask(TaskCategory.WORK, "None", 1000, TaskPriority.NONE);
+        Task medium = handler.addTask(TaskCategory.ERRAND, "Medium", 2000, TaskPriority.MEDIUM);
+
+        assertEquals(List.of(medium, none, high, low), handler.getTasks(TaskSortOrder.NEWEST, null, 0, 10));
+        assertEquals(List.of(high, medium, low, none), handler.getTasks(TaskSortOrder.PRIORITY, null, 0, 10));
+        assertEquals(List.of(none, medium, low, high), handler.getTasks(TaskSortOrder.DUE_DATE, null, 0, 10));
+        assertEquals(List.of(none, low, high, medium), handler.getTasks(TaskSortOrder.CATEGORY, null, 0, 10));
+
+        // Paging and category filters
+        assertEquals(List.of(medium, low), handler.getTasks(TaskSortOrder.PRIORITY, null, 1, 2));
+        assertEquals(List.of(low), handler.getTasks(TaskSortOrder.CATEGORY, TaskCategory.WORK, 1, 10));
+        assertEquals(List.of(none), handler.getTasks(TaskSortOrder.PRIORITY, TaskCategory.WORK, 1, 10));
+        assertEquals(List.of(none, low), handler.getTasks(TaskSortOrder.NEWEST, TaskCategory.WORK, 0, 10));
+        assertEquals(List.of(none), handler.getTasks(TaskSortOrder.DUE_DATE, TaskCategory.WORK, 0, 1));
+
+        // Keyset paging continues after the last task shown
+        assertEquals(List.of(low, none), handler.getTasksAfter(TaskSortOrder.PRIORITY, null, medium, 10));
+        assertEquals(List.of(high, low), handler.getTasksAfter(TaskSortOrder.NEWEST, null, none, 10));
+        assertEquals(List.of(low), handler.getTasksAfter(TaskSortOrder.DUE_DATE, TaskCategory.WORK, none, 10));
+        assertEquals(List.of(low), handler.getTasksAfter(TaskSortOrder.CATEGORY, TaskCategory.WORK, none, 10));
+
+        // Editing re-indexes the task
+        handler.updateTask(none.getId(), TaskCategory.HEALTH, null, Task.NO_DUE_DATE, TaskPriority.HIGH);
+        assertEquals(List.of(none, high), handler.getTasks(TaskSortOrder.PRIORITY, null, 0, 2));
+        assertEquals(List.of(medium, low, none, high), handler.getTasks(TaskSortOrder.DUE_DATE, null, 0, 10));
+        assertEquals(List.of(none), handler.getTasks(TaskSortOrder.CATEGORY, TaskCategory.HEALTH, 0, 10));
+        assertEquals(List.of(low), handler.getTasks(TaskSortOrder.PRIORITY, TaskCategory.WORK, 0, 10));
+    }
+
+    /**
+     * Test that add, edit and remove can each be undone and redone.
+     */
+    @Test
+    void testUndoRedoSingleOperations() {
+        Task t = handler.addTask(TaskCategory.WORK, "Draft");
+        handler.updateTask(t.getId(), TaskCategory.SCHOOL, "Final");
+        handler.removeTask(t.getId());
+        assertTrue(handler.getAllTasks().isEmpty());
+
+        assertTrue(handler.undo());
+        assertEquals("Final", handler.getAllTasks().get(0).getDescription());
+        assertTrue(handler.undo());
+        assertEquals("Draft", handler.getAllTasks().get(0).getDescription());
+        assertEquals(TaskCategory.WORK, handler.getTasks(TaskSortOrder.CATEGORY, null, 0, 1).get(0).getCategory());
+        assertTrue(handler.undo());
+        assertTrue(handler.getAllTasks().isEmpty());
+        assertFalse(handler.undo());
+
+        assertTrue(handler.redo());
+        assertTrue(handler.redo());
+        assertEquals("Final", handler.getAllTasks().get(0).getDescription());
+
+        // A new operation discards what could still be redone
+        handler.addTask(null, "Other");
+        assertFalse(handler.canRedo());
+
+        // Undone state is what gets persisted
+        TaskHandler reloaded = new TaskHandler(tempCsv.toString());
+        assertEquals(2, reloaded.getAllTasks().size());
+    }
+
+    /**
+     * Test that a bulk removal is undone as one step and saved in one journal append.
+     */
+    @Test
+    void testUndoBulkRemoval() throws IOException {
+        Task t1 = handler.addTask(TaskCategory.WORK, "One");
+        Task t2 = handler.addTask(TaskCategory.WORK, "Two");
+        Task t3 = handler.addTask(TaskCategory.WORK, "Three");
+
+        assertEquals(2, handler.removeTasks(List.of(t1.getId(), t3.getId(), 999L)));
+        assertEquals(List.of(t2), handler.getAllTasks());
+
+        long journalLines = Files.readAllLines(Path.of(tempCsv + ".journal")).size();
+        assertTrue(handler.undo());
+        assertEquals(3, handler.getAllTasks().size());
+        assertEquals(journalLines + 2, Files.readAllLines(Path.of(tempCsv + ".journal")).size());
+    }
+
+    /**
+     * Test that the undo history drops the oldest operations beyond its limits.
+     */
+    @Test
+    void testUndoLimits() {
+        handler.setUndoLimits(2, 2);
+        handler.addTask(null, "One");
+        handler.addTask(null, "Two");
+        handler.addTask(null, "Three");
+
+        assertTrue(handler.undo());
+        assertTrue(handler.undo());
+        assertFalse(handler.undo(), "Only the two most recent operations should be kept");
+        assertEquals(1, handler.getAllTasks().size());
+
+        // An operation larger than the record limit cannot be undone and clears the history
+        handler.addTask(null, "Two again");
+        handler.addTask(null, "Three again");
+        handler.removeTasks(List.of(1L, 4L, 5L));
+        assertFalse(handler.canUndo());
+        assertTrue(handler.getAllTasks().isEmpty());
+    }
+
+    /**
+     * Test that completing a task moves it into the archive and that undo/redo follow it there.
+     */
+    @Test
+    void testCompleteTaskArchives() {
+        Task t1 = handler.addTask(TaskCategory.WORK, "Report");
+        Task t2 = handler.addTask(TaskCategory.PERSONAL, "Dishes");
+
+        assertTrue(handler.completeTask(t1.getId()));
+        assertFalse(handler.completeTask(t1.getId()));
+        assertEquals(List.of(t2), handler.getAllTasks());
+        assertEquals(1, handler.getCompletedTaskCount());
+        assertEquals("Report", handler.getCompletedTasks(null, null, 0, 10).get(0).task().getDescription());
+
+        // Undo brings the task back and hides its archive record
+        assertTrue(handler.undo());
+        assertEquals(2, handler.getAllTasks().size());
+        assertEquals(0, handler.getCompletedTaskCount());
+
+        // Redo archives it again, and undoing that hides the new record
+        assertTrue(handler.redo());
+        assertEquals(1, handler.getCompletedTaskCount());
+        assertTrue(handler.undo());
+        assertEquals(0, handler.getCompletedTaskCount());
+        assertTrue(handler.redo());
+
+        assertEquals(1, handler.completeTasks(List.of(t2.getId())));
+        TaskHandler reloaded = new TaskHandler(tempCsv.toString());
+        assertTrue(reloaded.getAllTasks().isEmpty());
+        assertEquals(List.of("Dishes", "Report"), reloaded.getCompletedTasks(null, null, 0, 10).stream()
+                .map(entry -> entry.task().getDescription()).toList());
+        assertEquals(1, reloaded.getCompletedTasks(TaskCategory.WORK, null, 0, 10).size());
+        reloaded.close();
+    }
+
+    /**
+     * Test that a redone completion whose archive write fails keeps the task live and can be redone later.
+     */
+    @Test
+    void testRedoKeepsTaskWhenArchiveFails() throws IOException {
+        Task task = handler.addTask(TaskCategory.WORK, "Report");
+        assertTrue(handler.completeTask(task.getId()));
+        assertTrue(handler.undo());
+
+        // A directory in place of the manifest makes the archive write fail
+        Path manifest = Path.of(tempCsv + TaskHandler.ARCHIVE_SUFFIX, "manifest.csv");
+        Files.delete(manifest);
+        Files.createDirectory(manifest);
+        assertFalse(handler.redo());
+        assertEquals(List.of("Report"), handler.getAllTasks().stream().map(Task::getDescription).toList());
+        assertTrue(handler.canRedo());
+        TaskHandler reloaded = new TaskHandler(tempCsv.toString());
+        assertEquals(1, reloaded.getAllTasks().size());
+        reloaded.close();
+
+        Files.delete(manifest);
+        assertTrue(handler.redo());
+        assertTrue(handler.getAllTasks().isEmpty());
+        assertEquals(1, handler.getCompletedTaskCount());
+    }
+
+    /**
+     * Test that the per-category counters follow adds, edits, removals, completions and undo.
+     */
+    @Test
+    void testCategoryCounts() {
+        Task t1 = handler.addTask(TaskCategory.WORK, "One");
+        Task t2 = handler.addTask(TaskCategory.WORK, "Two");
+        Task t3 = handler.addTask(null, "Three");
+        assertEquals(3, handler.getTaskCount(null));
+        assertEquals(2, handler.getTaskCount(TaskCategory.WORK));
+        assertEquals(1, handler.getTaskCount(TaskCategory.UNCATEGORIZED));
+
+        handler.updateTask(t2.getId(), TaskCategory.SCHOOL, null);
+        assertEquals(1, handler.getTaskCount(TaskCategory.WORK));
+        assertEquals(1, handler.getTaskCount(TaskCategory.SCHOOL));
+
+        handler.removeTasks(List.of(t1.getId(), t3.getId()));
+        handler.completeTask(t2.getId());
+        assertEquals(0, handler.getTaskCount(null));
+        assertEquals(0, handler.getTaskCount(TaskCategory.SCHOOL));
+
+        handler.undo();
+        handler.undo();
+        assertEquals(3, handler.getTaskCount(null));
+        assertEquals(1, handler.getTaskCount(TaskCategory.WORK));
+        assertEquals(1, handler.getTaskCount(TaskCategory.SCHOOL));
+
+        // Counts are rebuilt from the file on load
+        assertEquals(1, new TaskHandler(tempCsv.toString()).getTaskCount(TaskCategory.SCHOOL));
+    }
 }
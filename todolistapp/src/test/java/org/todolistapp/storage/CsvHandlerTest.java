@@ -31,6 +31,7 @@ import static org.junit.jupiter.api.Assertions.*;
 class CsvHandlerTest {
 
     private static final String TEST_CSV = "test_tasks.csv";
+    private static final String TEST_CSV_GZ = "test_tasks.csv.gz";
     private CsvHandler csvHandler;
 
     @BeforeEach
@@ -43,8 +44,12 @@ class CsvHandlerTest {
 
     @AfterEach
     void tearDown() throws IOException {
-        // Remove the test CSV file after each test
+        // Remove the test CSV files after each test
         Files.deleteIfExists(Paths.get(TEST_CSV));
+        Files.deleteIfExists(Paths.get(TEST_CSV_GZ));
+        Files.deleteIfExists(Paths.get(TEST_CSV + ".tmp"));
+        Files.deleteIfExists(Paths.get(TEST_CSV + ".journal"));
+        Files.deleteIfExists(Paths.get(TEST_CSV_GZ + ".journal"));
     }
 
     /**
@@ -122,4 +127,168 @@ class CsvHandlerTest {
         assertEquals(1, tasks.size());
         assertEquals("Buy milk, eggs, and bread", tasks.get(0).getDescription());
     }
+
+    /**
+     * Test that a ".gz" storage file is written compressed and
+     * reads back the same tasks, including appended ones.
+     */
+    @Test
+    @DisplayName("Compressed CSV round trips saved and appended tasks")
+    void testCompressedRoundTrip() throws IOException {
+        CsvHandler gzHandler = new CsvHandler(TEST_CSV_GZ);
+        assertTrue(gzHandler.isCompressed());
+        assertTrue(gzHandler.loadTasks().isEmpty(), "New compressed file should load as empty");
+
+        gzHandler.saveTasks(List.of(
+                new Task(1, TaskCategory.WORK, "Finish report"),
+                new Task(2, TaskCategory.ERRAND, "Buy milk, eggs, and bread")));
+        gzHandler.addTasks(new Task(3, TaskCategory.HEALTH, "Go for a run"));
+
+        // gzip magic number shows the file is not stored as plain text
+        byte[] header = Files.readAllBytes(Paths.get(TEST_CSV_GZ));
+        assertEquals((byte) 0x1f, header[0]);
+        assertEquals((byte) 0x8b, header[1]);
+
+        List<Task> tasks = gzHandler.loadTasks();
+        assertEquals(3, tasks.size());
+        assertEquals("Buy milk, eggs, and bread", tasks.get(1).getDescription());
+        assertEquals("Go for a run", tasks.get(2).getDescription());
+    }
+
+    /**
+     * Test that saving replaces the file through a temporary file
+     * which does not stay behind after the save.
+     */
+    @Test
+    @DisplayName("Save tasks should not leave a temporary file behind")
+    void testSaveIsAtomic() throws IOException {
+        Files.writeString(Paths.get(TEST_CSV + ".tmp"), "leftover of a crashed save");
+        csvHandler = new CsvHandler(TEST_CSV);
+        assertFalse(Files.exists(Paths.get(TEST_CSV + ".tmp")), "Stale temporary file should be cleaned up");
+
+        csvHandler.saveTasks(List.of(new Task(1, TaskCategory.WORK, "Finish report")));
+
+        assertFalse(Files.exists(Paths.get(TEST_CSV + ".tmp")));
+        assertEquals(List.of("1,WORK,Finish report"), Files.readAllLines(Paths.get(TEST_CSV)));
+    }
+
+    /**
+     * Test that in INTERVAL mode a burst of saves is batched and
+     * only the latest one is written when flushed.
+     */
+    @Test
+    @DisplayName("Interval sync mode batches saves until flushed")
+    void testIntervalSyncBatchesSaves() throws IOException {
+        CsvHandler batched = new CsvHandler(TEST_CSV, SyncMode.INTERVAL, 60_000);
+        batched.saveTasks(List.of(new Task(1, TaskCategory.WORK, "First")));
+        batched.saveTasks(List.of(new Task(1, TaskCategory.WORK, "Second")));
+
+        assertTrue(Files.readAllLines(Paths.get(TEST_CSV)).isEmpty(), "Nothing should be written before the interval");
+
+        batched.flush();
+        assertEquals(List.of("1,WORK,Second"), Files.readAllLines(Paths.get(TEST_CSV)));
+        batched.close();
+    }
+
+    /**
+     * Test that in ON_CLOSE mode the latest save is written when the handler is closed.
+     */
+    @Test
+    @DisplayName("On-close sync mode writes the latest save on close")
+    void testOnCloseSyncWritesOnClose() throws IOException {
+        CsvHandler deferred = new CsvHandler(TEST_CSV, SyncMode.ON_CLOSE, 0);
+        deferred.saveTasks(List.of(new Task(2, TaskCategory.HEALTH, "Go for a run")));
+        assertTrue(Files.readAllLines(Paths.get(TEST_CSV)).isEmpty());
+
+        deferred.close();
+        assertEquals(List.of("2,HEALTH,Go for a run"), Files.readAllLines(Paths.get(TEST_CSV)));
+
+        // Nothing would flush a save made after close, so it is written straight away
+        deferred.saveTasks(List.of(new Task(3, TaskCategory.WORK, "Late save")));
+        assertEquals(List.of("3,WORK,Late save"), Files.readAllLines(Paths.get(TEST_CSV)));
+    }
+
+    /**
+     * Test that incremental saves are journaled next to the CSV file,
+     * replayed on load, and folded into the CSV file by a full save.
+     */
+    @Test
+    @DisplayName("Saved changes are replayed on load and compacted by a full save")
+    void testSaveChangesJournal() throws IOException {
+        Task task1 = new Task(1, TaskCategory.WORK, "Finish report");
+        Task task2 = new Task(2, TaskCategory.HEALTH, "Go for a run");
+        csvHandler.saveTasks(List.of(task1, task2));
+
+        task1.setDescription("Finish the report");
+        csvHandler.saveChanges(List.of(task1, new Task(3, TaskCategory.ERRAND, "Buy milk")), List.of(2L));
+
+        assertEquals(List.of("1,WORK,Finish report", "2,HEALTH,Go for a run"), Files.readAllLines(Paths.get(TEST_CSV)));
+        List<Task> tasks = csvHandler.loadTasks();
+        assertEquals(2, tasks.size());
+        assertEquals("Finish the report", tasks.get(0).getDescription());
+        assertEquals("Buy milk", tasks.get(1).getDescription());
+
+        csvHandler.saveTasks(tasks);
+        assertFalse(Files.exists(Paths.get(TEST_CSV + ".journal")), "Full save should replace the journal");
+        assertEquals(2, csvHandler.loadTasks().size());
+    }
+
+    /**
+     * Test that a removal record cut short by a crash ("-12" torn to "-1")
+     * is not replayed, and that the torn tail is cut off so later appends
+     * are not glued to it.
+     */
+    @Test
+    @DisplayName("Torn removal record is not replayed")
+    void testTornJournalRemoval() throws IOException {
+        csvHandler.saveTasks(List.of(new Task(1, TaskCategory.WORK, "Finish report"),
+                new Task(12, TaskCategory.HEALTH, "Go for a run")));
+        Files.writeString(Paths.get(TEST_CSV + ".journal"), "-1", StandardOpenOption.CREATE);
+
+        CsvHandler reopened = new CsvHandler(TEST_CSV);
+        assertEquals(2, reopened.loadTasks().size(), "A torn removal must not delete task 1");
+        assertFalse(Files.exists(Paths.get(TEST_CSV + ".journal")), "The torn record should be cut off");
+
+        reopened.saveChanges(List.of(), List.of(12L));
+        List<Task> tasks = new CsvHandler(TEST_CSV).loadTasks();
+        assertEquals(1, tasks.size());
+        assertEquals(1L, tasks.get(0).getId());
+    }
+
+    /**
+     * Test that an upsert record cut short by a crash is not replayed with a
+     * truncated description, while the complete records before it are.
+     */
+    @Test
+    @DisplayName("Torn update record is not replayed")
+    void testTornJournalUpdate() throws IOException {
+        csvHandler.saveTasks(List.of(new Task(3, TaskCategory.WORK, "task 3")));
+        csvHandler.saveChanges(List.of(new Task(4, TaskCategory.ERRAND, "Buy milk")), List.of());
+        Files.writeString(Paths.get(TEST_CSV + ".journal"), "+3,WORK,task 3 edited but tru", StandardOpenOption.APPEND);
+
+        CsvHandler reopened = new CsvHandler(TEST_CSV);
+        List<Task> tasks = reopened.loadTasks();
+        assertEquals(2, tasks.size());
+        assertEquals("task 3", tasks.get(0).getDescription());
+        assertEquals("Buy milk", tasks.get(1).getDescription());
+
+        reopened.saveChanges(List.of(new Task(3, TaskCategory.WORK, "task 3 edited")), List.of());
+        assertEquals("task 3 edited", new CsvHandler(TEST_CSV).loadTasks().get(0).getDescription());
+    }
+
+    /**
+     * Test that a complete journal record that does not parse is skipped and
+     * the records after it are still replayed.
+     */
+    @Test
+    @DisplayName("Malformed journal record does not hide later records")
+    void testMalformedJournalRecordSkipped() throws IOException {
+        csvHandler.saveTasks(List.of(new Task(1, TaskCategory.WORK, "Finish report")));
+        Files.writeString(Paths.get(TEST_CSV + ".journal"), String.join(System.lineSeparator(),
+                "+2,ERRAND,Buy milk", "-not a number", "?3", "+4,HEALTH,Go for a run", "-1", ""),
+                StandardOpenOption.CREATE);
+
+        List<Task> tasks = new CsvHandler(TEST_CSV).loadTasks();
+        assertEquals(List.of(2L, 4L), tasks.stream().map(Task::getId).toList());
+    }
 }
@@ -0,0 +1,156 @@
+package org.todolistapp.storage;
+
+import org.junit.jupiter.api.*;
+import org.todolistapp.models.Task;
+import org.todolistapp.models.TaskCategory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+/**
+ * TaskArchiveTest.java
+
+ * Unit tests for the TaskArchive class, the compressed cold store for completed tasks.
+
+ * Responsibilities:
+ *  - Verify that queries return archived tasks newest first, one page at a time.
+ *  - Verify that records roll over into new segments and survive a reload.
+ *  - Verify the category and text filters and that reopened tasks are hidden.
+ *  - Verify that interrupted or failed appends neither lose nor reuse sequence numbers.
+
+ * Notes:
+ *  - Each test works in a fresh temporary directory with tiny segments.
+ */
+
+class TaskArchiveTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("archive");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Test that pages come back newest first across several segments, also after a reload.
+     */
+    @Test
+    void testPagingAcrossSegments() {
+        TaskArchive archive = new TaskArchive(directory.toString(), 3);
+        for (int i = 1; i <= 8; i++) {
+            archive.append(List.of(new Task(i, TaskCategory.WORK, "Task " + i)), 1000L * i);
+        }
+        assertTrue(Files.exists(directory.resolve("segment-000003.csv.gz")));
+        assertEquals(8, archive.size());
+
+        TaskArchive reloaded = new TaskArchive(directory.toString(), 3);
+        assertEquals(8, reloaded.size());
+        assertEquals(List.of(8L, 7L, 6L), ids(reloaded.query(null, null, 0, 3)));
+        assertEquals(List.of(5L, 4L, 3L), ids(reloaded.query(null, null, 3, 3)));
+        assertEquals(List.of(2L, 1L), ids(reloaded.query(null, null, 6, 3)));
+        assertEquals(8000L, reloaded.query(null, null, 0, 1).get(0).completedAt());
+    }
+
+    /**
+     * Test that a bulk append larger than a segment is split and keeps its order.
+     */
+    @Test
+    void testBulkAppendSplitsSegments() {
+        TaskArchive archive = new TaskArchive(directory.toString(), 2);
+        List<Long> sequences = archive.append(List.of(
+                new Task(1, TaskCategory.PERSONAL, "a"),
+                new Task(2, TaskCategory.PERSONAL, "b"),
+                new Task(3, TaskCategory.PERSONAL, "c")), 1L);
+
+        assertEquals(List.of(0L, 1L, 2L), sequences);
+        assertEquals(List.of(3L, 2L, 1L), ids(new TaskArchive(directory.toString(), 2).query(null, null, 0, 10)));
+    }
+
+    /**
+     * Test the category and text filters and that reopened records are skipped.
+     */
+    @Test
+    void testFiltersAndReopen() {
+        TaskArchive archive = new TaskArchive(directory.toString(), 2);
+        archive.append(List.of(
+                new Task(1, TaskCategory.WORK, "Write report"),
+                new Task(2, TaskCategory.PERSONAL, "Clean kitchen"),
+                new Task(3, TaskCategory.WORK, "Review REPORT")), 1L);
+        List<Long> reopened = archive.append(List.of(new Task(4, TaskCategory.WORK, "report draft")), 2L);
+
+        assertEquals(List.of(4L, 3L, 1L), ids(archive.query(TaskCategory.WORK, null, 0, 10)));
+        assertEquals(List.of(4L, 3L, 1L), ids(archive.query(null, "report", 0, 10)));
+        assertEquals(List.of(1L), ids(archive.query(TaskCategory.WORK, "report", 2, 10)));
+
+        archive.reopen(reopened);
+        assertEquals(3, archive.size());
+        TaskArchive reloaded = new TaskArchive(directory.toString(), 2);
+        assertEquals(List.of(3L, 2L, 1L), ids(reloaded.query(null, null, 0, 10)));
+        assertEquals(List.of(1L), ids(reloaded.query(null, null, 2, 10)));
+    }
+
+    /**
+     * Test that records written to a segment without their manifest line (a crash between the two writes)
+     * and a torn manifest line are cut off on load, so reused sequence numbers reopen the right record.
+     */
+    @Test
+    void testUncommittedAppendIsCutOff() throws IOException {
+        TaskArchive archive = new TaskArchive(directory.toString(), 10);
+        archive.append(List.of(new Task(1, TaskCategory.WORK, "Committed")), 1L);
+        try (OutputStream out = Files.newOutputStream(directory.resolve("segment-000001.csv.gz"),
+                StandardOpenOption.APPEND);
+             Writer writer = new OutputStreamWriter(new GZIPOutputStream(out), StandardCharsets.UTF_8)) {
+            writer.write("1,2,2,WORK,Orphan" + System.lineSeparator());
+        }
+        Files.writeString(directory.resolve("manifest.csv"), "1,1", StandardOpenOption.APPEND);
+
+        TaskArchive reloaded = new TaskArchive(directory.toString(), 10);
+        assertEquals(1, reloaded.size());
+        List<Long> sequences = reloaded.append(List.of(new Task(3, TaskCategory.WORK, "Next")), 3L);
+        assertEquals(List.of(1L), sequences);
+        assertEquals(List.of(3L, 1L), ids(reloaded.query(null, null, 0, 10)));
+
+        reloaded.reopen(sequences);
+        assertEquals(List.of(1L), ids(new TaskArchive(directory.toString(), 10).query(null, null, 0, 10)));
+    }
+
+    /**
+     * Test that a failed append does not use up sequence numbers and a partly failed one reports
+     * exactly the tasks that were archived.
+     */
+    @Test
+    void testFailedAppendReportsArchivedTasks() throws IOException {
+        TaskArchive archive = new TaskArchive(directory.toString(), 1);
+        archive.append(List.of(new Task(1, TaskCategory.WORK, "a")), 1L);
+        // A directory where the third segment would go makes that write fail
+        Files.createDirectories(directory.resolve("segment-000003.csv.gz"));
+
+        List<Long> sequences = archive.append(List.of(
+                new Task(2, TaskCategory.WORK, "b"),
+                new Task(3, TaskCategory.WORK, "c")), 2L);
+        assertEquals(List.of(1L), sequences, "Only the task written before the failure is archived");
+        assertEquals(2, archive.size());
+
+        assertEquals(List.of(2L), archive.append(List.of(new Task(3, TaskCategory.WORK, "c")), 3L));
+        assertEquals(List.of(3L, 2L, 1L), ids(new TaskArchive(directory.toString(), 1).query(null, null, 0, 10)));
+    }
+
+    private static List<Long> ids(List<TaskArchive.Entry> entries) {
+        return entries.stream().map(entry -> entry.task().getId()).toList();
+    }
+}
@@ -0,0 +1,242 @@
+package org.todolistapp.ui;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.stage.Stage;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.todolistapp.service.TaskHandler;
+import org.todolistapp.workload.WorkloadGenerator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+/**
+ * UiPerformanceHarness.java
+
+ * Replays a generated workload against the real ToDoAppUI and measures how
+ * responsive it stays with a large task list.
+
+ * Responsibilities:
+ *  - Generate a task file (todolist.perf.tasks tasks, default 100000) and an
+ *    operation mix (todolist.perf.ops steps, default 2000) from
+ *    todolist.perf.seed, then open the window on it.
+ *  - Run each step on the FX thread as the UI would: change the task through
+ *    TaskHandler and refresh the list, or switch category for filters. Time
+ *    each step up to the end of CSS and layout.
+ *  - Record the time between rendered frames while the workload runs and
+ *    the heap used after loading and during the run.
+ *  - Open and close the Add pop-up todolist.perf.dialogs times (default 50)
+ *    and record its click-to-visible latency as reported by the UI.
+ *  - Print p50/p95/p99/max per operation and write them to
+ *    target/ui-perf-<tasks>-<seed>.csv, so runs can be compared.
+
+ * Notes:
+ *  - Needs a display and only runs when -Dtodolist.perf=true is given, e.g.
+ *    xvfb-run mvn test -Dtest=UiPerformanceHarness -Dtodolist.perf=true
+ *  - Steps are submitted one at a time, so rendering pulses run between
+ *    them the way they would between user actions.
+ *  - Heap figures come from the MemoryMXBean and include garbage not yet
+ *    collected, except the one taken after the explicit GC once loaded.
+ */
+
+@EnabledIfSystemProperty(named = "todolist.perf", matches = "true")
+class UiPerformanceHarness {
+
+    private static final long STEP_TIMEOUT_SECONDS = 60;
+    // Heap is sampled every this many steps
+    private static final int HEAP_SAMPLE_INTERVAL = 100;
+
+    private Path directory;
+
+    @BeforeAll
+    static void startToolkit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+        } catch (IllegalStateException e) {
+            // Toolkit already running
+            started.countDown();
+        }
+        Platform.setImplicitExit(false);
+        assertTrue(started.await(STEP_TIMEOUT_SECONDS, TimeUnit.SECONDS), "JavaFX did not start");
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("ui-perf");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Replay the configured workload against the UI and report latency, frame time and heap.
+     */
+    @Test
+    void replayWorkload() throws Exception {
+        int taskCount = Integer.getInteger("todolist.perf.tasks", 100_000);
+        int stepCount = Integer.getInteger("todolist.perf.ops", 2000);
+        int dialogCount = Integer.getInteger("todolist.perf.dialogs", 50);
+        long seed = Long.getLong("todolist.perf.seed", 1);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        WorkloadGenerator generator = new WorkloadGenerator(seed);
+        Path taskFile = directory.resolve("tasks.csv");
+        generator.writeTaskFile(taskFile, taskCount);
+        List<WorkloadGenerator.Step> steps = generator.operations(stepCount, WorkloadGenerator.Mix.DEFAULT, taskCount);
+
+        Map<String, List<Long>> latencies = new LinkedHashMap<>();
+        List<Long> frameTimes = new ArrayList<>();
+        long[] heap = new long[3]; // after load (after GC), peak during the run, at the end
+
+        try (TaskHandler handler = new TaskHandler(taskFile.toString())) {
+            ToDoAppUI ui = new ToDoAppUI(handler);
+            Stage[] stage = new Stage[1];
+            long startNanos = System.nanoTime();
+            onFxThread(() -> {
+                stage[0] = new Stage();
+                ui.start(stage[0]);
+            });
+            record(latencies, "startup", System.nanoTime() - startNanos);
+            System.gc();
+            heap[0] = memory.getHeapMemoryUsage().getUsed();
+
+            // Frame time is the gap between consecutive pulses that rendered
+            AnimationTimer frames = new AnimationTimer() {
+                private long last = -1;
+
+                @Override
+                public void handle(long now) {
+                    if (last >= 0) frameTimes.add(now - last);
+                    last = now;
+                }
+            };
+            onFxThread(frames::start);
+
+            for (int i = 0; i < steps.size(); i++) {
+                WorkloadGenerator.Step step = steps.get(i);
+                long nanos = onFxThread(() -> {
+                    long stepStart = System.nanoTime();
+                    if (step.operation() == WorkloadGenerator.Operation.FILTER) {
+                        ui.selectCategory(step.category());
+                    } else {
+                        assertTrue(WorkloadGenerator.apply(handler, step), "Step did not apply: " + step);
+                        ui.refreshTaskList();
+                    }
+                    stage[0].getScene().getRoot().applyCss();
+                    stage[0].getScene().getRoot().layout();
+                    return System.nanoTime() - stepStart;
+                });
+                record(latencies, step.operation().name().toLowerCase(), nanos);
+                if (i % HEAP_SAMPLE_INTERVAL == 0) heap[1] = Math.max(heap[1], memory.getHeapMemoryUsage().getUsed());
+            }
+
+            for (int i = 0; i < dialogCount; i++) {
+                record(latencies, "dialog", openAddDialog(ui));
+            }
+
+            onFxThread(() -> {
+                frames.stop();
+                stage[0].hide();
+            });
+            heap[2] = memory.getHeapMemoryUsage().getUsed();
+            heap[1] = Math.max(heap[1], heap[2]);
+            assertTrue(ui.getShownTaskCount() > 0, "No tasks shown after the workload");
+        }
+        List<Long> frameSnapshot = onFxThread(() -> new ArrayList<>(frameTimes));
+        latencies.put("frame", frameSnapshot);
+        report(latencies, heap, taskCount, seed);
+    }
+
+    // Opens the Add pop-up as a click on "Add Task" does and closes it again once it is shown.
+    // Returns the click-to-visible latency the UI measured
+    private static long openAddDialog(ToDoAppUI ui) throws Exception {
+        return onFxThread(() -> {
+            TaskDialog dialog = ui.taskDialog();
+            // Runs inside the dialog's nested event loop, after the window is shown
+            Platform.runLater(dialog::close);
+            dialog.openForAdd();
+            return ui.getLastDialogOpenLatencyNanos();
+        });
+    }
+
+    // Prints the results and writes them to a CSV file under target/
+    private static void report(Map<String, List<Long>> latencies, long[] heap, int taskCount, long seed)
+            throws IOException {
+        Path output = Path.of("target", "ui-perf-" + taskCount + "-" + seed + ".csv");
+        Files.createDirectories(output.getParent());
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8))) {
+            csv.println("metric,count,p50_ms,p95_ms,p99_ms,max_ms");
+            System.out.printf("UI performance, %d tasks, seed %d%n", taskCount, seed);
+            System.out.printf("%-10s %7s %9s %9s %9s %9s%n", "metric", "count", "p50 ms", "p95 ms", "p99 ms", "max ms");
+            for (Map.Entry<String, List<Long>> entry : latencies.entrySet()) {
+                long[] sorted = entry.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+                if (sorted.length == 0) continue;
+                double p50 = millis(percentile(sorted, 50));
+                double p95 = millis(percentile(sorted, 95));
+                double p99 = millis(percentile(sorted, 99));
+                double max = millis(sorted[sorted.length - 1]);
+                System.out.printf("%-10s %7d %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), sorted.length, p50, p95, p99, max);
+                csv.printf(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f%n", entry.getKey(), sorted.length, p50, p95, p99, max);
+            }
+            System.out.printf("heap MB: after load %.1f, peak %.1f, end %.1f%n",
+                    mb(heap[0]), mb(heap[1]), mb(heap[2]));
+            csv.printf(Locale.ROOT, "heap_after_load_mb,1,%.1f,,,%n", mb(heap[0]));
+            csv.printf(Locale.ROOT, "heap_peak_mb,1,%.1f,,,%n", mb(heap[1]));
+            csv.printf(Locale.ROOT, "heap_end_mb,1,%.1f,,,%n", mb(heap[2]));
+        }
+        System.out.println("Results written to " + output.toAbsolutePath());
+    }
+
+    private static void record(Map<String, List<Long>> latencies, String metric, long nanos) {
+        latencies.computeIfAbsent(metric, key -> new ArrayList<>()).add(nanos);
+    }
+
+    // Nearest-rank percentile of sorted values
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static void onFxThread(Runnable action) throws Exception {
+        onFxThread(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Runs an action on the FX thread and waits for its result, rethrowing what it throws
+    private static <T> T onFxThread(Callable<T> action) throws Exception {
+        FutureTask<T> task = new FutureTask<>(action);
+        Platform.runLater(task);
+        try {
+            return task.get(STEP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error error) throw error;
+            throw (Exception) e.getCause();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.todolistapp.workload;
+
+import org.todolistapp.models.Task;
+import org.todolistapp.models.TaskCategory;
+import org.todolistapp.models.TaskPriority;
+import org.todolistapp.service.TaskHandler;
+import org.todolistapp.service.TaskSortOrder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+/**
+ * WorkloadGenerator.java
+
+ * Produces synthetic but realistic task lists and operation mixes for
+ * performance tests. The same seed always produces the same output, so a
+ * scenario can be replayed before and after a change.
+
+ * Responsibilities:
+ *  - Generate tasks with a skewed category distribution, descriptions of
+ *    varying length, optional due dates around a base time and priorities.
+ *  - Stream large task files to disk without holding them in memory.
+ *  - Generate a sequence of add/edit/complete/filter operations in given
+ *    proportions, only ever editing or completing tasks that still exist.
+
+ * Notes:
+ *  - Task IDs start at 1 and are consecutive, like the ones TaskHandler assigns.
+ *  - The operation generator keeps its own list of live IDs (swap-remove for
+ *    completions), so it stays O(1) per operation for millions of tasks.
+ */
+
+public class WorkloadGenerator {
+    // Base time of the generated due dates when none is given: 2024-01-01T00:00:00Z
+    public static final long DEFAULT_BASE_TIME = 1_704_067_200_000L;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    // Tasks read by a FILTER step, one page of the task list
+    private static final int FILTER_PAGE = 100;
+
+    // Relative frequency of each category, in TaskCategory order
+    private static final int[] CATEGORY_WEIGHTS = {35, 25, 15, 10, 5, 3, 7};
+    private static final String[] VERBS = {"Write", "Review", "Call", "Buy", "Fix", "Plan", "Send", "Book",
+            "Clean", "Read", "Prepare", "Update", "Check", "Pay", "Schedule", "Organize"};
+    private static final String[] OBJECTS = {"report", "groceries", "dentist appointment", "project proposal",
+            "car insurance", "birthday present", "slides", "tax return", "email to Sam", "flight tickets",
+            "kitchen", "chapter 4", "invoice", "team meeting", "garden", "library books", "budget", "backups"};
+    private static final String[] DETAILS = {"before Friday", "for next week", "with the team", "again",
+            "and share notes", "(urgent)", "if time allows", "after lunch", "for the quarterly review",
+            "and follow up", "online", "before the deadline"};
+
+    // Kinds of operations in a workload
+    public enum Operation {
+        ADD,
+        EDIT,
+        COMPLETE,
+        FILTER
+    }
+
+    // Relative weights of the operations in a workload
+    public record Mix(int add, int edit, int complete, int filter) {
+        // A typical session: mostly edits and adds, some completions and browsing
+        public static final Mix DEFAULT = new Mix(30, 30, 20, 20);
+    }
+
+    // One generated operation. taskId is set for EDIT and COMPLETE; category for ADD, EDIT and FILTER
+    // (a null FILTER category means ALL); description for ADD and EDIT
+    public record Step(Operation operation, long taskId, TaskCategory category, String description) { }
+
+    private final Random random;
+    private final long baseTime;
+
+    // Creates a generator with the default base time
+    public WorkloadGenerator(long seed) {
+        this(seed, DEFAULT_BASE_TIME);
+    }
+
+    // Creates a generator whose due dates fall within a month around baseTime
+    public WorkloadGenerator(long seed, long baseTime) {
+        this.random = new Random(seed);
+        this.baseTime = baseTime;
+    }
+
+    // Generates count tasks with IDs 1 to count
+    public List<Task> tasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) tasks.add(task(i));
+        return tasks;
+    }
+
+    // Writes count generated tasks to a task file, one at a time
+    public void writeTaskFile(Path path, long count) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (long id = 1; id <= count; id++) {
+                writer.write(task(id).toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    // Generates count operations against a task list holding IDs 1 to existingTasks
+    public List<Step> operations(int count, Mix mix, long existingTasks) {
+        LiveIds live = new LiveIds(existingTasks);
+        long nextId = existingTasks + 1;
+        List<Step> steps = new ArrayList<>(count);
+        while (steps.size() < count) {
+            Operation operation = pickOperation(mix);
+            switch (operation) {
+                case ADD -> {
+                    steps.add(new Step(Operation.ADD, nextId, pickCategory(), description()));
+                    live.add(nextId++);
+                }
+                case EDIT -> {
+                    if (live.isEmpty()) continue;
+                    steps.add(new Step(Operation.EDIT, live.pick(random), pickCategory(), description()));
+                }
+                case COMPLETE -> {
+                    if (live.isEmpty()) continue;
+                    steps.add(new Step(Operation.COMPLETE, live.removeRandom(random), null, null));
+                }
+                case FILTER -> {
+                    // One filter in four goes back to ALL
+                    TaskCategory category = random.nextInt(4) == 0 ? null : pickCategory();
+                    steps.add(new Step(Operation.FILTER, 0, category, null));
+                }
+            }
+        }
+        return steps;
+    }
+
+    // Applies one step to a TaskHandler (FILTER reads the first page of its category).
+    // Returns false if the step did not apply, e.g. an ADD that got a different ID than generated
+    public static boolean apply(TaskHandler handler, Step step) {
+        return switch (step.operation()) {
+            case ADD -> handler.addTask(step.category(), step.description()).getId() == step.taskId();
+            case EDIT -> handler.updateTask(step.taskId(), step.category(), step.description());
+            case COMPLETE -> handler.completeTask(step.taskId());
+            case FILTER -> {
+                handler.getTasks(TaskSortOrder.NEWEST, step.category(), 0, FILTER_PAGE);
+                yield true;
+            }
+        };
+    }
+
+    // Generates one task
+    private Task task(long id) {
+        long dueAt = Task.NO_DUE_DATE;
+        // About a third of the tasks have a due date, from two weeks before to two weeks after the base time
+        if (random.nextInt(3) == 0) {
+            dueAt = baseTime + (random.nextInt(29) - 14) * DAY_MILLIS + random.nextInt((int) DAY_MILLIS);
+        }
+        TaskPriority priority = TaskPriority.values()[pickWeighted(new int[]{55, 20, 15, 10})];
+        return new Task(id, pickCategory(), description(), dueAt, priority);
+    }
+
+    // Builds a description from one to three parts
+    private String description() {
+        StringBuilder description = new StringBuilder(VERBS[random.nextInt(VERBS.length)])
+                .append(' ').append(OBJECTS[random.nextInt(OBJECTS.length)]);
+        if (random.nextBoolean()) description.append(' ').append(DETAILS[random.nextInt(DETAILS.length)]);
+        return description.toString();
+    }
+
+    private TaskCategory pickCategory() {
+        return TaskCategory.values()[pickWeighted(CATEGORY_WEIGHTS)];
+    }
+
+    private Operation pickOperation(Mix mix) {
+        return Operation.values()[pickWeighted(new int[]{mix.add(), mix.edit(), mix.complete(), mix.filter()})];
+    }
+
+    // Returns an index chosen with probability proportional to its weight
+    private int pickWeighted(int[] weights) {
+        int total = 0;
+        for (int weight : weights) total += weight;
+        int roll = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            roll -= weights[i];
+            if (roll < 0) return i;
+        }
+        return weights.length - 1;
+    }
+
+    // IDs of the tasks that exist at a point of the workload, with O(1) random pick and removal
+    private static final class LiveIds {
+        private long[] ids;
+        private int size;
+
+        LiveIds(long existingTasks) {
+            ids = new long[(int) Math.max(16, existingTasks)];
+            for (long id = 1; id <= existingTasks; id++) ids[size++] = id;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(long id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        long pick(Random random) {
+            return ids[random.nextInt(size)];
+        }
+
+        // Removes a random ID by moving the last one into its slot
+        long removeRandom(Random random) {
+            int index = random.nextInt(size);
+            long id = ids[index];
+            ids[index] = ids[--size];
+            return id;
+        }
+    }
+}
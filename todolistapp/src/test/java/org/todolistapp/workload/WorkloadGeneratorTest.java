@@ -0,0 +1,114 @@
+package org.todolistapp.workload;
+
+import org.junit.jupiter.api.*;
+import org.todolistapp.models.Task;
+import org.todolistapp.models.TaskCategory;
+import org.todolistapp.service.TaskHandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+/**
+ * WorkloadGeneratorTest.java
+
+ * Unit tests for the WorkloadGenerator used by the performance tests.
+
+ * Responsibilities:
+ *  - Verify that the same seed produces the same tasks and operations.
+ *  - Verify that the operation mix follows the requested proportions.
+ *  - Verify that a generated task file loads and every generated step applies
+ *    to a TaskHandler.
+
+ * Notes:
+ *  - Each test works in a fresh temporary directory.
+ */
+
+class WorkloadGeneratorTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("workload");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Test that two generators with the same seed produce identical workloads
+     * and a different seed produces a different one.
+     */
+    @Test
+    void testSameSeedSameWorkload() {
+        List<String> first = new WorkloadGenerator(42).tasks(500).stream().map(Task::toString).toList();
+        List<String> second = new WorkloadGenerator(42).tasks(500).stream().map(Task::toString).toList();
+        List<String> other = new WorkloadGenerator(43).tasks(500).stream().map(Task::toString).toList();
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+
+        assertEquals(new WorkloadGenerator(7).operations(1000, WorkloadGenerator.Mix.DEFAULT, 100),
+                new WorkloadGenerator(7).operations(1000, WorkloadGenerator.Mix.DEFAULT, 100));
+    }
+
+    /**
+     * Test that the operations follow the mix and that tasks use every category, skewed towards WORK.
+     */
+    @Test
+    void testMixProportions() {
+        WorkloadGenerator generator = new WorkloadGenerator(1);
+        List<WorkloadGenerator.Step> steps = generator.operations(20_000, new WorkloadGenerator.Mix(50, 25, 0, 25), 1000);
+        assertEquals(20_000, steps.size());
+
+        Map<WorkloadGenerator.Operation, Integer> counts = new EnumMap<>(WorkloadGenerator.Operation.class);
+        for (WorkloadGenerator.Step step : steps) counts.merge(step.operation(), 1, Integer::sum);
+        assertEquals(0, counts.getOrDefault(WorkloadGenerator.Operation.COMPLETE, 0));
+        assertEquals(0.50, counts.get(WorkloadGenerator.Operation.ADD) / 20_000.0, 0.02);
+        assertEquals(0.25, counts.get(WorkloadGenerator.Operation.EDIT) / 20_000.0, 0.02);
+        assertEquals(0.25, counts.get(WorkloadGenerator.Operation.FILTER) / 20_000.0, 0.02);
+
+        Map<TaskCategory, Integer> categories = new EnumMap<>(TaskCategory.class);
+        for (Task task : generator.tasks(10_000)) categories.merge(task.getCategory(), 1, Integer::sum);
+        assertEquals(TaskCategory.values().length, categories.size());
+        for (TaskCategory category : TaskCategory.values()) {
+            assertTrue(categories.get(TaskCategory.WORK) >= categories.get(category));
+        }
+    }
+
+    /**
+     * Test that a generated task file loads into TaskHandler and every generated step applies to it.
+     */
+    @Test
+    void testStepsApplyToTaskFile() throws IOException {
+        Path taskFile = directory.resolve("tasks.csv");
+        WorkloadGenerator generator = new WorkloadGenerator(99);
+        generator.writeTaskFile(taskFile, 2000);
+
+        List<WorkloadGenerator.Step> steps = generator.operations(3000, new WorkloadGenerator.Mix(20, 20, 50, 10), 2000);
+        try (TaskHandler handler = new TaskHandler(taskFile.toString())) {
+            assertEquals(2000, handler.getTaskCount(null));
+            long added = 0;
+            long completed = 0;
+            for (WorkloadGenerator.Step step : steps) {
+                assertTrue(WorkloadGenerator.apply(handler, step), "Step did not apply: " + step);
+                if (step.operation() == WorkloadGenerator.Operation.ADD) added++;
+                if (step.operation() == WorkloadGenerator.Operation.COMPLETE) completed++;
+            }
+            assertEquals(2000 + added - completed, handler.getTaskCount(null));
+            assertEquals(completed, handler.getCompletedTaskCount());
+        }
+    }
+}